@@ -1,15 +1,11 @@
 package com.saviynt.pam.util;
 
-import java.beans.IntrospectionException;
-import java.beans.PropertyDescriptor;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.Comparator;
-import java.util.Date;
+import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collector;
 
-import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,23 +14,30 @@ import com.saviynt.pam.exception.BadRequestException;
 
 /**
  * The {@link CommonComparator} implements the generic comparator for 
- * all POJO classes using Reflection API  
+ * all POJO classes using Reflection API. Getters are resolved once per
+ * (class, fieldName) through {@link FieldAccessor} and reused afterwards.
  */
 public class CommonComparator<T> implements Comparator<T> {
 
 	private static final Logger log = LoggerFactory.getLogger(CommonComparator.class);
+	private static final RateLimitedLogger errorLog = new RateLimitedLogger(log);
+	private static final SortMetrics metrics = SortMetrics.getInstance();
 
-	private static final String DATATYPE_STRING = "java.lang.String";
-	private static final String DATATYPE_DATE = "java.util.Date";
-	private static final String DATATYPE_INTEGER = "java.lang.Integer";
-	private static final String DATATYPE_LONG = "java.lang.Long";
-	private static final String DATATYPE_FLOAT = "java.lang.Float";
-	private static final String DATATYPE_DOUBLE = "java.lang.Double";
-	private static final String DATATYPE_SQL_TIMESTAMP = "java.sql.Timestamp";
+	/**
+	 * Initial off-heap key bytes reserved per element, the buffer grows when
+	 * the keys are longer.
+	 */
+	private static final int OFF_HEAP_KEY_BYTES = 16;
+	/**
+	 * Largest number of elements a page collector keeps.
+	 */
+	private static final int MAX_PAGE_CAPACITY = Integer.MAX_VALUE - 8;
 	
 	private final String fieldName;
 	private final boolean isAscendingOrder;
 	private boolean isNullFirst;
+	private FieldAccessor accessor;
+	private SortMetrics.FieldStats stats;
 
 	public CommonComparator(final String fieldName, SortOrder sortOrder) {
 		this.fieldName = fieldName;
@@ -46,6 +49,52 @@ public class CommonComparator<T> implements Comparator<T> {
 		this.isNullFirst = isNullFirst;
 	}
 
+	/**
+	 * Create comparator for the given class, the getter is resolved and
+	 * validated here instead of on the first comparison.
+	 * 
+	 * @param type
+	 * @param fieldName
+	 * @param sortOrder
+	 * @param isNullFirst
+	 * 
+	 * @throws BadRequestException if the class has no such property
+	 */
+	public CommonComparator(final Class<T> type, final String fieldName, SortOrder sortOrder, boolean isNullFirst) {
+		this(fieldName, sortOrder, isNullFirst);
+		try {
+			this.accessor = FieldAccessor.of(type, fieldName);
+		} catch (IllegalArgumentException e) {
+			if (metrics.isEnabled()) {
+				metrics.recordError(type, metricsFields());
+			}
+			throw new BadRequestException("Invalid sort column");
+		}
+	}
+
+	/**
+	 * Get a comparator generated for the class and field, with the getter call
+	 * and the typed value comparison bound into a dedicated class so the JIT can
+	 * inline them. Generated comparators are cached and reused. Falls back to
+	 * a reflective {@link CommonComparator} when the class cannot be generated.
+	 * 
+	 * @param type
+	 * @param fieldName
+	 * @param sortOrder
+	 * @param isNullFirst
+	 * @return comparator
+	 * 
+	 * @throws BadRequestException if the class has no such property
+	 */
+	public static <T> Comparator<T> generated(final Class<T> type, final String fieldName, SortOrder sortOrder,
+			boolean isNullFirst) {
+		try {
+			return GeneratedComparators.of(type, fieldName, sortOrder, isNullFirst);
+		} catch (IllegalArgumentException e) {
+			throw new BadRequestException("Invalid sort column");
+		}
+	}
+
 	/**
 	 * Override method for comparison of two elements(Objects).
 	 * 
@@ -58,22 +107,248 @@ public class CommonComparator<T> implements Comparator<T> {
 	@Override
 	public int compare(final T t1, final T t2) {
 		try {
-			int value;
 			Object fieldVal1 = invokeGetterValue(t1);
 			Object fieldVal2 = invokeGetterValue(t2);
+			if (metrics.isEnabled()) {
+				statsFor(t1).recordCompare();
+			}
+			return compareKeys(fieldVal1, fieldVal2, determineOrder(), determineNullPos());
+		} catch (SecurityException | IllegalArgumentException e) {
+			errorLog.error("Invalid sort column " + fieldName, e);
+			if (metrics.isEnabled()) {
+				metrics.recordError(t1.getClass(), metricsFields());
+			}
+			throw new BadRequestException("Invalid sort column");
+		}
+	}
+
+	/**
+	 * Encode the field value of the element into an order-preserving key,
+	 * comparing two keys with {@link SortKeyEncoder#compare(byte[], byte[])}
+	 * gives the same result as {@link #compare}.
+	 * 
+	 * @param t
+	 * @return key
+	 * 
+	 * @throws BadRequestException
+	 */
+	public byte[] sortKey(final T t) {
+		try {
+			return SortKeyEncoder.encode(invokeGetterValue(t), isAscendingOrder, isNullFirst);
+		} catch (SecurityException | IllegalArgumentException e) {
+			errorLog.error("Invalid sort column " + fieldName, e);
+			if (metrics.isEnabled()) {
+				metrics.recordError(t.getClass(), metricsFields());
+			}
+			throw new BadRequestException("Invalid sort column");
+		}
+	}
+
+	/**
+	 * Sort the list on the field, extracting each element's value only once
+	 * instead of twice per comparison. The ordering is the same as
+	 * {@code Collections.sort(list, new CommonComparator<>(fieldName, sortOrder, isNullFirst))}.
+	 * 
+	 * @param list
+	 * @param fieldName
+	 * @param sortOrder
+	 * @param isNullFirst
+	 * 
+	 * @throws BadRequestException
+	 */
+	public static <T> void sort(final List<T> list, final String fieldName, SortOrder sortOrder, boolean isNullFirst) {
+		Objects.requireNonNull(fieldName);
+		sort(list, SortSpec.of(fieldName, sortOrder, isNullFirst));
+	}
+
+	/**
+	 * Sort the list on all keys of the specification, extracting each
+	 * element's values only once. Lists already in order, in reverse order or
+	 * made of a few ordered runs are detected in one pass over the keys.
+	 * 
+	 * @param list
+	 * @param spec
+	 * 
+	 * @throws BadRequestException
+	 */
+	public static <T> void sort(final List<T> list, final SortSpec spec) {
+		int size = list.size();
+		if (size < 2) {
+			return;
+		}
+		Object[] elements = list.toArray();
+		IndexSort.apply(list, elements, sortIndices(elements, spec));
+	}
+
+	/**
+	 * Sort the indices of the elements on all keys of the specification.
+	 * 
+	 * @param elements
+	 * @param spec
+	 * @return indices of the elements in sort order
+	 * 
+	 * @throws BadRequestException
+	 */
+	static int[] sortIndices(final Object[] elements, final SortSpec spec) {
+		int size = elements.length;
+		if (size == 0) {
+			return new int[0];
+		}
+		try {
+			if (metrics.isEnabled()) {
+				long start = System.nanoTime();
+				SortKeyColumn.CountingColumn column = new SortKeyColumn.CountingColumn(
+						SortKeyColumn.extract(elements, spec));
+				long extracted = System.nanoTime();
+				int[] sorted = IndexSort.sort(column, size);
+				metrics.recordSort(elements[0].getClass(), spec.toString(), size, column.getCompareCount(),
+						extracted - start, System.nanoTime() - extracted);
+				metrics.recordStrategy(elements[0].getClass(), spec.toString(), column.getStrategy());
+				return sorted;
+			}
+			return IndexSort.sort(SortKeyColumn.extract(elements, spec), size);
+		} catch (SecurityException | IllegalArgumentException e) {
+			errorLog.error("Invalid sort column " + spec, e);
+			if (metrics.isEnabled()) {
+				metrics.recordError(elements[0].getClass(), spec.toString());
+			}
+			throw new BadRequestException("Invalid sort column");
+		}
+	}
+
+	/**
+	 * Sort the list on all keys of the specification with the encoded keys
+	 * held off-heap, for very large lists where the extracted keys would
+	 * otherwise fill the young generation. The ordering is the same as
+	 * {@link #sort(List, SortSpec)}, the direct memory is released before
+	 * this method returns.
+	 * 
+	 * @param list
+	 * @param spec
+	 * 
+	 * @throws BadRequestException
+	 */
+	public static <T> void sortOffHeap(final List<T> list, final SortSpec spec) {
+		int size = list.size();
+		if (size < 2) {
+			return;
+		}
+		Object[] elements = list.toArray();
+		SortKeyEncoder<Object> encoder = new SortKeyEncoder<>(spec);
+		try (OffHeapKeyBuffer buffer = new OffHeapKeyBuffer(size, (long) size * OFF_HEAP_KEY_BYTES)) {
+			long start = System.nanoTime();
+			SortKeyEncoder.KeyBuffer key = new SortKeyEncoder.KeyBuffer();
+			Object[] values = new Object[encoder.keyCount()];
+			for (int i = 0; i < size; i++) {
+				encoder.encode(elements[i], values, key);
+				buffer.add(i, key);
+			}
+			long extracted = System.nanoTime();
+			buffer.sort();
+			buffer.apply(list, elements);
+			if (metrics.isEnabled()) {
+				metrics.recordSort(elements[0].getClass(), spec.toString(), size, 0L, extracted - start,
+						System.nanoTime() - extracted);
+			}
+		} catch (SecurityException | IllegalArgumentException e) {
+			errorLog.error("Invalid sort column " + spec, e);
+			if (metrics.isEnabled()) {
+				metrics.recordError(elements[0].getClass(), spec.toString());
+			}
+			throw new BadRequestException("Invalid sort column");
+		}
+	}
 
-			if (fieldVal1 == null || fieldVal2 == null) {
-				value = compareNull(fieldVal1, fieldVal2);
-			} else {
-				value = compareValue(fieldVal1, fieldVal2);
+	/**
+	 * Get one page of the collection in sort order without sorting the whole
+	 * collection. The page is the same as the sublist
+	 * {@code [offset, offset + limit)} of a full sort with the specification.
+	 * 
+	 * @param items
+	 * @param spec
+	 * @param offset number of leading elements to skip
+	 * @param limit maximum number of elements to return
+	 * @return page
+	 * 
+	 * @throws BadRequestException
+	 */
+	public static <T> List<T> topK(final Collection<T> items, final SortSpec spec, int offset, int limit) {
+		if (offset < 0 || limit < 0) {
+			throw new BadRequestException("Invalid page request");
+		}
+		int capacity = (int) Math.min((long) offset + limit, items.size());
+		try {
+			long start = metrics.isEnabled() ? System.nanoTime() : 0L;
+			TopKBuffer<T> buffer = new TopKBuffer<>(new CompiledComparator<>(spec, null), capacity);
+			for (T item : items) {
+				buffer.accept(item);
+			}
+			List<T> page = buffer.toList(offset);
+			if (metrics.isEnabled() && !items.isEmpty()) {
+				metrics.recordSort(items.iterator().next().getClass(), spec.toString(), items.size(), 0L, 0L,
+						System.nanoTime() - start);
 			}
-			return value * determineOrder();
+			return page;
 		} catch (SecurityException | IllegalArgumentException e) {
-			log.error(ExceptionUtils.getStackTrace(e));
+			errorLog.error("Invalid sort column " + spec, e);
+			if (metrics.isEnabled() && !items.isEmpty()) {
+				metrics.recordError(items.iterator().next().getClass(), spec.toString());
+			}
 			throw new BadRequestException("Invalid sort column");
 		}
 	}
 
+	/**
+	 * Get a collector of one page of the stream in sort order, the same page as
+	 * {@link #topK(Collection, SortSpec, int, int)}. Only the first
+	 * {@code offset + limit} elements are kept while collecting, and partial
+	 * results of a parallel stream are merged in encounter order, so ties keep
+	 * the order of a stable full sort.
+	 * 
+	 * @param spec
+	 * @param offset number of leading elements to skip
+	 * @param limit maximum number of elements to return
+	 * @return collector
+	 * 
+	 * @throws BadRequestException
+	 */
+	public static <T> Collector<T, ?, List<T>> topK(final SortSpec spec, int offset, int limit) {
+		if (offset < 0 || limit < 0) {
+			throw new BadRequestException("Invalid page request");
+		}
+		int capacity = (int) Math.min((long) offset + limit, MAX_PAGE_CAPACITY);
+		return Collector.of(() -> new TopKBuffer<T>(new CompiledComparator<>(spec, null), capacity), (buffer, t) -> {
+			try {
+				buffer.accept(t);
+			} catch (SecurityException | IllegalArgumentException e) {
+				errorLog.error("Invalid sort column " + spec, e);
+				if (metrics.isEnabled()) {
+					metrics.recordError(t.getClass(), spec.toString());
+				}
+				throw new BadRequestException("Invalid sort column");
+			}
+		}, TopKBuffer::merge, buffer -> buffer.toList(offset));
+	}
+
+	/**
+	 * Compare two extracted field values with the given order and null position.
+	 * 
+	 * @param v1
+	 * @param v2
+	 * @param order 1 for ascending, -1 for descending
+	 * @param nullPos -1 for null first, 1 for null last
+	 * @return value
+	 */
+	static int compareKeys(final Object v1, final Object v2, int order, int nullPos) {
+		int value;
+		if (v1 == null || v2 == null) {
+			value = compareNull(v1, v2, order, nullPos);
+		} else {
+			value = compareValue(v1, v2);
+		}
+		return value * order;
+	}
+
 	/**
 	 * Get actual value for the field
 	 *
@@ -83,16 +358,32 @@ public class CommonComparator<T> implements Comparator<T> {
 	 * @throws BadRequestException
 	 */
 	private Object invokeGetterValue(T t) {
-		Objects.requireNonNull(fieldName);
-		try {
-			PropertyDescriptor pd = new PropertyDescriptor(fieldName, t.getClass());
-			Method getter = pd.getReadMethod();
-			return getter.invoke(t);
-		} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException
-				| IntrospectionException e) {
-			log.error(ExceptionUtils.getStackTrace(e));
-			throw new IllegalArgumentException("Invalid property");
+		FieldAccessor current = accessor;
+		if (current == null || current.getBeanClass() != t.getClass()) {
+			current = FieldAccessor.of(t.getClass(), fieldName);
+			accessor = current;
+		}
+		return current.get(t);
+	}
+
+	private SortMetrics.FieldStats statsFor(T t) {
+		SortMetrics.FieldStats current = stats;
+		if (current == null) {
+			current = metrics.get(t.getClass(), metricsFields());
+			stats = current;
+		}
+		return current;
+	}
+
+	/**
+	 * Sort fields of the metrics in the form of {@link SortSpec#toString()},
+	 * so the comparator and the sort paths record the same key.
+	 */
+	private String metricsFields() {
+		if (fieldName == null) {
+			return String.valueOf(fieldName);
 		}
+		return SortSpec.of(fieldName, isAscendingOrder ? SortOrder.asc : SortOrder.desc, isNullFirst).toString();
 	}
 
 	/**
@@ -102,51 +393,33 @@ public class CommonComparator<T> implements Comparator<T> {
 	 * @param v2
 	 * @return -1,0,1
 	 */
-	private int compareNull(final Object v1, final Object v2) {
+	private static int compareNull(final Object v1, final Object v2, int order, int nullPos) {
 		int actual = -1;
 		if (v1 == null && v2 == null)
 			actual = 0;
 		else if(v1 == null)
 			actual = 1;
-		return actual * determineNullPos() * determineOrder();
+		return actual * nullPos * order;
 	}
 
 	/**
-	 * Compare two actual values, according to different data types.
+	 * Compare two actual values with the strategy of their type, see
+	 * {@link ValueComparators}.
 	 * 
 	 * @param v1
 	 * @param v2
 	 * @return -1,0,1
 	 */
-	private int compareValue(final Object v1, final Object v2) {
-		int actual;
-		switch (v1.getClass().getName()) {
-			case DATATYPE_INTEGER:
-				actual = ((Integer) v1).compareTo((Integer) v2);
-				break;
-			case DATATYPE_LONG:
-				actual = ((Long) v1).compareTo((Long) v2);
-				break;
-			case DATATYPE_STRING:
-				actual = ((String) v1).compareTo((String) v2);
-				break;
-			case DATATYPE_DATE:
-				actual = ((Date) v1).compareTo((Date) v2);
-				break;
-			case DATATYPE_FLOAT:
-				actual = ((Float) v1).compareTo((Float) v2);
-				break;
-			case DATATYPE_DOUBLE:
-				actual = ((Double) v1).compareTo((Double) v2);
-				break;
-			case DATATYPE_SQL_TIMESTAMP:
-				actual = ((Timestamp) v1).compareTo((Timestamp) v2);
-				break;
-			default:
-				log.error("Unsupported data type {}",v1.getClass().getName());
-				throw new IllegalArgumentException("Unsupported data type");
-			}
-		return actual;
+	private static int compareValue(final Object v1, final Object v2) {
+		Comparator<Object> strategy = ValueComparators.of(v1.getClass());
+		if (strategy == null) {
+			throw new IllegalArgumentException("Unsupported data type " + v1.getClass().getName());
+		}
+		try {
+			return strategy.compare(v1, v2);
+		} catch (ClassCastException e) {
+			throw new IllegalArgumentException("Unsupported data type " + v2.getClass().getName(), e);
+		}
 	}
 
 	/**
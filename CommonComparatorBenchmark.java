@@ -0,0 +1,277 @@
+package com.saviynt.pam.util;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.saviynt.pam.enums.SortOrder;
+
+/**
+ * JMH benchmarks of the {@link CommonComparator} sort paths against a
+ * hand-written {@link Comparator#comparing} baseline. Every sort benchmark
+ * copies the source list first, so the copy cost is part of all scores
+ * including the baseline. Run {@link #main} to report throughput, time per
+ * operation and allocation rate (gc profiler):
+ *
+ * <pre>
+ * java -cp benchmarks.jar com.saviynt.pam.util.CommonComparatorBenchmark
+ * </pre>
+ *
+ * For a quick run narrow the parameters on the JMH command line instead of
+ * the defaults:
+ *
+ * <pre>
+ * java -cp benchmarks.jar org.openjdk.jmh.Main CommonComparatorBenchmark -p size=1000 -p field=name
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class CommonComparatorBenchmark {
+
+	@Param({ "10", "1000", "100000", "1000000" })
+	private int size;
+
+	@Param({ "0", "0.1", "0.5" })
+	private double nullDensity;
+
+	@Param({ "name", "id", "duration", "cost", "timeOut", "startDate", "endDate" })
+	private String field;
+
+	@Param({ "asc", "desc" })
+	private SortOrder sortOrder;
+
+	private List<Row> source;
+	private List<Row> work;
+	private Comparator<Row> baseline;
+	private SortSpec spec;
+
+	@Setup(Level.Trial)
+	public void setUpTrial() {
+		Random random = new Random(31);
+		source = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			source.add(Row.random(i, random, nullDensity));
+		}
+		work = new ArrayList<>(source);
+		spec = SortSpec.of(field, sortOrder, false);
+		baseline = baseline(field, sortOrder);
+	}
+
+	@Benchmark
+	public List<Row> baselineComparing() {
+		List<Row> work = new ArrayList<>(source);
+		Collections.sort(work, baseline);
+		return work;
+	}
+
+	@Benchmark
+	public List<Row> commonComparator() {
+		List<Row> work = new ArrayList<>(source);
+		Collections.sort(work, new CommonComparator<>(field, sortOrder, false));
+		return work;
+	}
+
+	@Benchmark
+	public List<Row> commonComparatorWithType() {
+		List<Row> work = new ArrayList<>(source);
+		Collections.sort(work, new CommonComparator<>(Row.class, field, sortOrder, false));
+		return work;
+	}
+
+	@Benchmark
+	public List<Row> generatedComparator() {
+		List<Row> work = new ArrayList<>(source);
+		Collections.sort(work, CommonComparator.generated(Row.class, field, sortOrder, false));
+		return work;
+	}
+
+	@Benchmark
+	public List<Row> specComparator() {
+		List<Row> work = new ArrayList<>(source);
+		Collections.sort(work, spec.comparator(Row.class));
+		return work;
+	}
+
+	@Benchmark
+	public List<Row> keyExtractionSort() {
+		List<Row> work = new ArrayList<>(source);
+		CommonComparator.sort(work, spec);
+		return work;
+	}
+
+	/**
+	 * Sorts a work list refilled from the source with the thread's reusable
+	 * {@link Sorter}, so the gc profiler shows the allocation of the sort alone.
+	 */
+	@Benchmark
+	public List<Row> reusableSorter() {
+		for (int i = 0; i < size; i++) {
+			work.set(i, source.get(i));
+		}
+		Sorter.forCurrentThread().sort(work, spec);
+		return work;
+	}
+
+	@Benchmark
+	public List<Row> offHeapKeySort() {
+		List<Row> work = new ArrayList<>(source);
+		CommonComparator.sortOffHeap(work, spec);
+		return work;
+	}
+
+	@Benchmark
+	public void topKPage(Blackhole blackhole) {
+		blackhole.consume(CommonComparator.topK(source, spec, 0, 50));
+	}
+
+	static Comparator<Row> baseline(final String field, SortOrder sortOrder) {
+		switch (field) {
+			case "name":
+				return comparing(Row::getName, sortOrder);
+			case "id":
+				return comparing(Row::getId, sortOrder);
+			case "duration":
+				return comparing(Row::getDuration, sortOrder);
+			case "cost":
+				return comparing(Row::getCost, sortOrder);
+			case "timeOut":
+				return comparing(Row::getTimeOut, sortOrder);
+			case "startDate":
+				return comparing(Row::getStartDate, sortOrder);
+			case "endDate":
+				return comparing(Row::getEndDate, sortOrder);
+			default:
+				throw new IllegalArgumentException(field);
+		}
+	}
+
+	private static <U extends Comparable<? super U>> Comparator<Row> comparing(final Function<Row, U> getter,
+			SortOrder sortOrder) {
+		return Comparator.comparing(getter, Comparator.nullsLast(
+				SortOrder.asc == sortOrder ? Comparator.<U>naturalOrder() : Comparator.<U>reverseOrder()));
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(CommonComparatorBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+
+	/**
+	 * Benchmark row covering every supported field type.
+	 */
+	public static class Row {
+
+		private Integer id;
+		private String name;
+		private Date startDate;
+		private Timestamp endDate;
+		private Long duration;
+		private Double timeOut;
+		private Float cost;
+
+		static Row random(int index, final Random random, double nullDensity) {
+			Row row = new Row();
+			long start = 1577836800000L + random.nextInt(Integer.MAX_VALUE);
+			row.id = nullable(random, nullDensity, random.nextInt());
+			row.name = nullable(random, nullDensity, "session-" + random.nextInt(index + 1));
+			row.startDate = nullable(random, nullDensity, new Date(start));
+			row.endDate = nullable(random, nullDensity, new Timestamp(start + random.nextInt(86_400_000)));
+			row.duration = nullable(random, nullDensity, (long) random.nextInt(86_400_000));
+			row.timeOut = nullable(random, nullDensity, random.nextDouble() * 3600);
+			row.cost = nullable(random, nullDensity, random.nextFloat() * 100);
+			return row;
+		}
+
+		private static <V> V nullable(final Random random, double nullDensity, V value) {
+			return random.nextDouble() < nullDensity ? null : value;
+		}
+
+		public Integer getId() {
+			return id;
+		}
+
+		public void setId(Integer id) {
+			this.id = id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public Date getStartDate() {
+			return startDate;
+		}
+
+		public void setStartDate(Date startDate) {
+			this.startDate = startDate;
+		}
+
+		public Timestamp getEndDate() {
+			return endDate;
+		}
+
+		public void setEndDate(Timestamp endDate) {
+			this.endDate = endDate;
+		}
+
+		public Long getDuration() {
+			return duration;
+		}
+
+		public void setDuration(Long duration) {
+			this.duration = duration;
+		}
+
+		public Double getTimeOut() {
+			return timeOut;
+		}
+
+		public void setTimeOut(Double timeOut) {
+			this.timeOut = timeOut;
+		}
+
+		public Float getCost() {
+			return cost;
+		}
+
+		public void setCost(Float cost) {
+			this.cost = cost;
+		}
+	}
+}
@@ -333,129 +333,358 @@ public class CommonComparatorTest {
     }
 
     @Test
-    @DisplayName("Negative: Field name with null")
-    void testFieldNameWithNull() throws Exception{
+    @DisplayName("Positive: Key extraction sort matches comparator order")
+    void testSortMatchesComparator() throws Exception{
+        for (String field : List.of("id","name","startDate","endDate","duration","timeOut","cost")) {
+            for (SortOrder sortOrder : SortOrder.values()) {
+                for (boolean nullFirst : new boolean[]{true,false}) {
+                    //Expected
+                    List<Session> expected = new ArrayList<>(list);
+                    Collections.sort(expected,new CommonComparator<>(field, sortOrder, nullFirst));
+                    //Sort
+                    List<Session> actual = new ArrayList<>(list);
+                    CommonComparator.sort(actual, field, sortOrder, nullFirst);
+
+                    //assert
+                    Assertions.assertIterableEquals(expected,actual, field+" "+sortOrder+" "+nullFirst);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Positive: Key extraction sort keeps sub-millisecond Timestamp order")
+    void testSortTimestampNanos() throws Exception{
+        Timestamp later = new Timestamp(dateFormat.parse("2020-01-02 21:12:22").getTime());
+        later.setNanos(later.getNanos() + 500);
+        list.get(0).setEndDate(later);
+        //Expected
+        List<Session> expected = new ArrayList<>(list);
+        Collections.sort(expected,new CommonComparator<>("endDate", SortOrder.asc));
+        //Sort
+        List<Session> actual = new ArrayList<>(list);
+        CommonComparator.sort(actual, "endDate", SortOrder.asc, false);
 
         //assert
-        Assertions.assertThrows(NullPointerException.class,()->{
-            Collections.sort(list,new CommonComparator<>(null, SortOrder.desc,true));
-        });
+        Assertions.assertIterableEquals(expected,actual);
+        Assertions.assertEquals(6,actual.get(0).getId());
     }
 
     @Test
-    @DisplayName("Negative: Invalid field name")
-    void testInvalidFieldName() throws Exception{
+    @DisplayName("Positive: Key extraction sort of large list matches comparator order")
+    void testSortLargeList() throws Exception{
+        Random random = new Random(7);
+        List<Session> large = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            large.add(new Session(i, "s" + random.nextInt(100), null, null,
+                    random.nextInt(10) == 0 ? null : (long) random.nextInt(1000), null, null));
+        }
+        //Expected
+        List<Session> expected = new ArrayList<>(large);
+        Collections.sort(expected,new CommonComparator<>("duration", SortOrder.desc, true));
+        //Sort
+        CommonComparator.sort(large, "duration", SortOrder.desc, true);
 
         //assert
-        Assertions.assertThrows(BadRequestException.class,()->{
-            Collections.sort(list,new CommonComparator<>("timeout", SortOrder.desc,true));
-        });
+        Assertions.assertIterableEquals(expected,large);
     }
 
     @Test
-    @DisplayName("Negative: Sort element by unsupported data type")
-    void testUnsupportedDatatype() throws Exception{
-      //assert
-        Assertions.assertThrows(BadRequestException.class,()->{
-            Collections.sort(list,new CommonComparator<>("status", SortOrder.desc));
-        });
+    @DisplayName("Positive: Radix sort of integer and temporal keys matches comparator order")
+    void testRadixSortLargeList() throws Exception{
+        Random random = new Random(11);
+        List<Session> large = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            long time = random.nextLong() % 4_000_000_000_000L;
+            Timestamp endDate = new Timestamp(time);
+            endDate.setNanos(random.nextInt(1_000_000_000));
+            large.add(new Session(random.nextInt(10) == 0 ? null : random.nextInt(), "s" + i,
+                    random.nextInt(10) == 0 ? null : new Date(time), random.nextInt(10) == 0 ? null : endDate,
+                    null, null, null));
+        }
+        for (String field : new String[] { "id", "startDate", "endDate" }) {
+            for (SortOrder sortOrder : SortOrder.values()) {
+                //Expected
+                List<Session> expected = new ArrayList<>(large);
+                Collections.sort(expected,new CommonComparator<>(field, sortOrder, true));
+                //Sort
+                List<Session> actual = new ArrayList<>(large);
+                CommonComparator.sort(actual, field, sortOrder, true);
+
+                //assert
+                Assertions.assertIterableEquals(expected,actual);
+            }
+        }
     }
 
     @Test
-    @DisplayName("Negative: CommonComparator is not supporting primitive data type collections")
-    void testPrimitiveDataTypeList() throws Exception{
+    @DisplayName("Positive: Off-heap key sort matches comparator order")
+    void testSortOffHeap() throws Exception{
+        Random random = new Random(13);
+        List<Session> large = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            large.add(new Session(i, random.nextInt(10) == 0 ? null : "session-" + random.nextInt(500),
+                    null, null, random.nextInt(10) == 0 ? null : (long) random.nextInt(1000),
+                    random.nextInt(10) == 0 ? null : random.nextDouble() - 0.5, null));
+        }
+        SortSpec spec = SortSpec.of("name",SortOrder.desc,true).then("timeOut",SortOrder.asc,false);
+        //Expected
+        List<Session> expected = new ArrayList<>(large);
+        expected.sort(new CommonComparator<Session>("name",SortOrder.desc,true)
+                .thenComparing(new CommonComparator<>("timeOut",SortOrder.asc,false)));
+        //Sort
+        List<Session> actual = new ArrayList<>(large);
+        CommonComparator.sortOffHeap(actual, spec);
+        List<Session> durations = new ArrayList<>(large);
+        CommonComparator.sortOffHeap(durations, SortSpec.of("duration",SortOrder.asc,false));
+        large.sort(new CommonComparator<>("duration",SortOrder.asc,false));
 
-        List<String> status = List.of("NEW","PENDING","APPROVED","REJECTED");
         //assert
-        Assertions.assertThrows(UnsupportedOperationException.class,()->{
-            Collections.sort(status,new CommonComparator<>(null, SortOrder.desc,true));
-        });
+        Assertions.assertIterableEquals(expected,actual);
+        Assertions.assertIterableEquals(large,durations);
     }
 
-}
+    @Test
+    @DisplayName("Positive: Top-K page matches page of full sort")
+    void testTopK() throws Exception{
+        //Expected
+        List<Session> sorted = new ArrayList<>(list);
+        Collections.sort(sorted,new CommonComparator<>("endDate", SortOrder.desc, true));
+        List<Session> expected = sorted.subList(2, 5);
+        //Sort
+        List<Session> actual = CommonComparator.topK(list, SortSpec.of("endDate", SortOrder.desc, true), 2, 3);
 
-class Session {
+        //assert
+        Assertions.assertIterableEquals(expected,actual);
+        Assertions.assertTrue(CommonComparator.topK(list, SortSpec.of("endDate", SortOrder.desc, true), 7, 3).isEmpty());
+    }
 
-    private Integer id;
-    private String name;
-    private Date startDate;
-    private Timestamp endDate;
-    private Long duration;
-    private Double timeOut;
-    private Float cost;
-    private boolean status;
+    @Test
+    @DisplayName("Positive: Top-K collector on parallel stream matches page of full sort")
+    void testTopKCollector() throws Exception{
+        List<Session> large = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            large.add(new Session(i, null, null, null, i % 11 == 0 ? null : (long) (i * 31 % 97), null, null));
+        }
+        SortSpec spec = SortSpec.of("duration", SortOrder.desc, true);
+        //Expected
+        List<Session> sorted = large.stream().filter(s -> s.getId() % 3 != 0)
+                .sorted(new CommonComparator<>("duration", SortOrder.desc, true)).skip(150).limit(40)
+                .collect(Collectors.toList());
+        //Sort
+        List<Session> actual = large.parallelStream().filter(s -> s.getId() % 3 != 0)
+                .collect(CommonComparator.topK(spec, 150, 40));
 
-    public Session(Integer id, String name, Date startDate, Timestamp endDate, Long duration, Double timeOut, Float cost) {
-        this.id = id;
-        this.name = name;
-        this.startDate = startDate;
-        this.endDate = endDate;
-        this.duration = duration;
-        this.timeOut = timeOut;
-        this.cost = cost;
+        //assert
+        Assertions.assertIterableEquals(sorted,actual);
+        Assertions.assertTrue(large.stream().collect(CommonComparator.<Session>topK(spec, 0, 0)).isEmpty());
+        Assertions.assertThrows(BadRequestException.class,()->{
+            large.stream().collect(CommonComparator.topK(SortSpec.of("timeout", SortOrder.asc, false), 0, 10));
+        });
     }
 
-    public Integer getId() {
-        return id;
+    @Test
+    @DisplayName("Positive: Generated comparator matches comparator order")
+    void testGeneratedComparator() throws Exception{
+        for (String field : List.of("id","name","startDate","endDate","duration","timeOut","cost")) {
+            for (SortOrder sortOrder : SortOrder.values()) {
+                for (boolean nullFirst : new boolean[]{true,false}) {
+                    //Expected
+                    List<Session> expected = new ArrayList<>(list);
+                    Collections.sort(expected,new CommonComparator<>(field, sortOrder, nullFirst));
+                    //Sort
+                    List<Session> actual = new ArrayList<>(list);
+                    Comparator<Session> comparator = CommonComparator.generated(Session.class, field, sortOrder, nullFirst);
+                    Collections.sort(actual, comparator);
+
+                    //assert
+                    Assertions.assertIterableEquals(expected,actual, field+" "+sortOrder+" "+nullFirst);
+                    Assertions.assertSame(comparator, CommonComparator.generated(Session.class, field, sortOrder, nullFirst));
+                    Assertions.assertFalse(comparator instanceof CommonComparator);
+                }
+            }
+        }
     }
 
-    public void setId(Integer id) {
-        this.id = id;
-    }
+    @Test
+    @DisplayName("Negative: Generated comparator with failing getter")
+    void testGeneratedComparatorGetterFailure() throws Exception{
+        List<Rejecting> rejecting = List.of(new Rejecting(), new Rejecting());
+        Comparator<Rejecting> invalid = CommonComparator.generated(Rejecting.class, "value", SortOrder.asc, false);
+        Comparator<Rejecting> checked = CommonComparator.generated(Rejecting.class, "checked", SortOrder.asc, false);
 
-    public String getName() {
-        return name;
+        //assert
+        Assertions.assertFalse(invalid instanceof CommonComparator);
+        Assertions.assertThrows(BadRequestException.class,()->{
+            Collections.sort(new ArrayList<>(rejecting), new CommonComparator<>("value", SortOrder.asc));
+        });
+        Assertions.assertThrows(BadRequestException.class,()->{
+            Collections.sort(new ArrayList<>(rejecting), invalid);
+        });
+        Assertions.assertThrows(BadRequestException.class,()->{
+            Collections.sort(new ArrayList<>(rejecting), new CommonComparator<>("checked", SortOrder.asc));
+        });
+        Assertions.assertThrows(BadRequestException.class,()->{
+            Collections.sort(new ArrayList<>(rejecting), checked);
+        });
     }
 
-    public void setName(String name) {
-        this.name = name;
-    }
+    @Test
+    @DisplayName("Negative: Key extraction sort with invalid field name")
+    void testSortInvalidFieldName() throws Exception{
 
-    public Date getStartDate() {
-        return startDate;
+        //assert
+        Assertions.assertThrows(BadRequestException.class,()->{
+            CommonComparator.sort(list,"timeout", SortOrder.desc,true);
+        });
     }
 
-    public void setStartDate(Date startDate) {
-        this.startDate = startDate;
+    @Test
+    @DisplayName("Negative: Field name with null")
+    void testFieldNameWithNull() throws Exception{
+
+        //assert
+        Assertions.assertThrows(NullPointerException.class,()->{
+            Collections.sort(list,new CommonComparator<>(null, SortOrder.desc,true));
+        });
     }
 
-    public Timestamp getEndDate() {
-        return endDate;
+    @Test
+    @DisplayName("Negative: Invalid field name")
+    void testInvalidFieldName() throws Exception{
+
+        //assert
+        Assertions.assertThrows(BadRequestException.class,()->{
+            Collections.sort(list,new CommonComparator<>("timeout", SortOrder.desc,true));
+        });
     }
 
-    public void setEndDate(Timestamp endDate) {
-        this.endDate = endDate;
+    @Test
+    @DisplayName("Negative: Invalid field name rejected at construction")
+    void testInvalidFieldNameAtConstruction() throws Exception{
+
+        //assert
+        Assertions.assertThrows(BadRequestException.class,()->{
+            new CommonComparator<>(Session.class,"timeout", SortOrder.desc,true);
+        });
     }
 
-    public Long getDuration() {
-        return duration;
+    @Test
+    @DisplayName("Positive: Long sorting with pre-resolved accessor")
+    void testLongOrderAscWithType() throws Exception{
+        //Expected
+        List<Long> expected = list.stream()
+                .sorted(Comparator.comparing(Session::getDuration,Comparator.nullsFirst(Comparator.naturalOrder())))
+                .map(Session::getDuration)
+                .collect(Collectors.toList());
+        //Sort
+        Collections.sort(list,new CommonComparator<>(Session.class,"duration", SortOrder.asc,true));
+        //Actual
+        List<Long> actual = list.stream()
+                .map(Session::getDuration)
+                .collect(Collectors.toList());
+        log.debug("Expected : {}",expected);
+        log.debug("Actual   : {}",actual);
+
+        //assert
+        Assertions.assertIterableEquals(expected,actual);
     }
 
-    public void setDuration(Long duration) {
-        this.duration = duration;
+    @Test
+    @DisplayName("Negative: Sort element by unsupported data type")
+    void testUnsupportedDatatype() throws Exception{
+        list.forEach(session -> session.setTags(Arrays.asList("tag")));
+      //assert
+        Assertions.assertThrows(BadRequestException.class,()->{
+            Collections.sort(list,new CommonComparator<>("tags", SortOrder.desc));
+        });
     }
 
-    public Double getTimeOut() {
-        return timeOut;
+    @Test
+    @DisplayName("Positive: Sort by Boolean and Comparable types")
+    void testComparableDatatype() throws Exception{
+        list.get(1).setStatus(true);
+        list.get(4).setStatus(true);
+        //Expected
+        List<Session> expected = Arrays.asList(list.get(1), list.get(4), list.get(0), list.get(2), list.get(3),
+                list.get(5), list.get(6));
+        //Sort
+        List<Session> actual = new ArrayList<>(list);
+        Collections.sort(actual,new CommonComparator<>("status", SortOrder.desc));
+        List<Session> sorted = new ArrayList<>(list);
+        CommonComparator.sort(sorted, "status", SortOrder.desc, false);
+
+        //assert
+        Assertions.assertIterableEquals(expected,actual);
+        Assertions.assertIterableEquals(expected,sorted);
     }
 
-    public void setTimeOut(Double timeOut) {
-        this.timeOut = timeOut;
+    @Test
+    @DisplayName("Positive: Sort by type with registered comparison strategy")
+    void testRegisteredStrategy() throws Exception{
+        for (Session session : list) {
+            session.setTags(session.getName() == null ? null : Arrays.asList(session.getName(), "x"));
+        }
+        @SuppressWarnings("unchecked")
+        Class<List<String>> listType = (Class<List<String>>) (Class<?>) List.class;
+        ValueComparators.register(listType, Comparator.comparingInt(List::size));
+        try {
+            list.get(0).setTags(Arrays.asList("a"));
+            //Sort
+            List<Session> actual = new ArrayList<>(list);
+            Collections.sort(actual,new CommonComparator<>(Session.class, "tags", SortOrder.asc, false));
+            List<Session> sorted = new ArrayList<>(list);
+            CommonComparator.sort(sorted, "tags", SortOrder.asc, false);
+
+            //assert
+            Assertions.assertEquals(1,actual.get(0).getId());
+            Assertions.assertEquals(6,actual.get(6).getId());
+            Assertions.assertIterableEquals(actual,sorted);
+        } finally {
+            ValueComparators.unregister(List.class);
+        }
+        Assertions.assertFalse(SortSchema.of(Session.class).isSortable("tags"));
     }
 
-    public Float getCost() {
-        return cost;
+    @Test
+    @DisplayName("Negative: Error of a getter is not turned into a bad request")
+    void testGetterError() throws Exception{
+        List<Failing> failing = new ArrayList<>(Arrays.asList(new Failing(), new Failing()));
+
+        //assert
+        Assertions.assertThrows(StackOverflowError.class,()->{
+            CommonComparator.sort(failing, "value", SortOrder.asc, false);
+        });
+        Assertions.assertThrows(StackOverflowError.class,()->{
+            Collections.sort(failing, new CommonComparator<>(Failing.class, "value", SortOrder.asc, false));
+        });
     }
 
-    public void setCost(Float cost) {
-        this.cost = cost;
+    public static class Failing {
+        public Integer getValue() {
+            throw new StackOverflowError();
+        }
     }
 
-    public boolean getStatus() {
-        return status;
+    public static class Rejecting {
+        public Integer getValue() {
+            throw new IllegalArgumentException("rejected");
+        }
+
+        public Integer getChecked() throws Exception {
+            throw new Exception("rejected");
+        }
     }
 
-    public void setStatus(boolean status) {
-        this.status = status;
+    @Test
+    @DisplayName("Negative: CommonComparator is not supporting primitive data type collections")
+    void testPrimitiveDataTypeList() throws Exception{
+
+        List<String> status = List.of("NEW","PENDING","APPROVED","REJECTED");
+        //assert
+        Assertions.assertThrows(UnsupportedOperationException.class,()->{
+            Collections.sort(status,new CommonComparator<>(null, SortOrder.desc,true));
+        });
     }
+
 }
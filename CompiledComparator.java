@@ -0,0 +1,182 @@
+package com.saviynt.pam.util;
+
+import java.util.Comparator;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.saviynt.pam.exception.BadRequestException;
+
+/**
+ * The {@link CompiledComparator} compares elements on all keys of a
+ * {@link SortSpec} in one flat loop over pre-resolved accessors, stopping at
+ * the first key that differs.
+ */
+final class CompiledComparator<T> implements Comparator<T> {
+
+	private static final Logger log = LoggerFactory.getLogger(CompiledComparator.class);
+	private static final RateLimitedLogger errorLog = new RateLimitedLogger(log);
+
+	private final String[] fieldNames;
+	private final int[] orders;
+	private final int[] nullPositions;
+	private final StringCollation[] collations;
+	private Binding binding;
+
+	CompiledComparator(final SortSpec spec, final Class<T> type) {
+		List<SortSpec.Key> keys = spec.getKeys();
+		int size = keys.size();
+		this.fieldNames = new String[size];
+		this.orders = new int[size];
+		this.nullPositions = new int[size];
+		this.collations = new StringCollation[size];
+		for (int i = 0; i < size; i++) {
+			SortSpec.Key key = keys.get(i);
+			fieldNames[i] = key.getFieldName();
+			orders[i] = key.isAscendingOrder() ? 1 : -1;
+			nullPositions[i] = key.isNullFirst() ? -1 : 1;
+			collations[i] = key.getCollation();
+		}
+		if (type != null) {
+			try {
+				this.binding = bind(type);
+			} catch (IllegalArgumentException e) {
+				throw new BadRequestException("Invalid sort column");
+			}
+		}
+	}
+
+	/**
+	 * Compare two elements key by key.
+	 * 
+	 * @param t1
+	 * @param t2
+	 * @return value
+	 * 
+	 * @throws BadRequestException
+	 */
+	@Override
+	public int compare(final T t1, final T t2) {
+		try {
+			FieldAccessor[] accessors1 = accessorsFor(t1);
+			FieldAccessor[] accessors2 = t1.getClass() == t2.getClass() ? accessors1 : accessorsFor(t2);
+			for (int i = 0; i < accessors1.length; i++) {
+				int value = compareValues(i, accessors1[i].get(t1), accessors2[i].get(t2));
+				if (value != 0) {
+					return value;
+				}
+			}
+			return 0;
+		} catch (SecurityException | IllegalArgumentException e) {
+			errorLog.error("Invalid sort column", e);
+			if (SortMetrics.getInstance().isEnabled()) {
+				SortMetrics.getInstance().recordError(t1.getClass(), String.join(",", fieldNames));
+			}
+			throw new BadRequestException("Invalid sort column");
+		}
+	}
+
+	/**
+	 * Compare two values of one key as read from the elements, strings are
+	 * collated directly instead of through their keys.
+	 */
+	private int compareValues(int key, final Object v1, final Object v2) {
+		if (v1 instanceof String && v2 instanceof String && !collations[key].isBinary()) {
+			return Integer.signum(collations[key].compare((String) v1, (String) v2)) * orders[key];
+		}
+		return CommonComparator.compareKeys(v1, v2, orders[key], nullPositions[key]);
+	}
+
+	/**
+	 * Number of keys in the specification.
+	 */
+	int keyCount() {
+		return fieldNames.length;
+	}
+
+	/**
+	 * Extract the values of all keys of the element, string values are
+	 * replaced by their collation key.
+	 * 
+	 * @param t
+	 * @param keys array of {@link #keyCount()} length receiving the values
+	 */
+	void extract(final T t, final Object[] keys) {
+		FieldAccessor[] accessors = accessorsFor(t);
+		for (int i = 0; i < accessors.length; i++) {
+			keys[i] = collations[i].key(accessors[i].get(t));
+		}
+	}
+
+	/**
+	 * Compare two sets of extracted key values.
+	 * 
+	 * @param keys1
+	 * @param keys2
+	 * @return value
+	 */
+	int compareKeys(final Object[] keys1, final Object[] keys2) {
+		for (int i = 0; i < keys1.length; i++) {
+			int value = CommonComparator.compareKeys(keys1[i], keys2[i], orders[i], nullPositions[i]);
+			if (value != 0) {
+				return value;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Compare two values of one key.
+	 * 
+	 * @param key index of the key in the specification
+	 * @param v1
+	 * @param v2
+	 * @return value
+	 */
+	int compareKey(int key, final Object v1, final Object v2) {
+		return CommonComparator.compareKeys(v1, v2, orders[key], nullPositions[key]);
+	}
+
+	/**
+	 * Convert a field value into the extracted form of one key.
+	 * 
+	 * @param key index of the key in the specification
+	 * @param value
+	 * @return extracted value
+	 */
+	Object toKey(int key, final Object value) {
+		return collations[key].key(value);
+	}
+
+	private FieldAccessor[] accessorsFor(final T t) {
+		Binding current = binding;
+		if (current == null || current.beanClass != t.getClass()) {
+			current = bind(t.getClass());
+			binding = current;
+		}
+		return current.accessors;
+	}
+
+	private Binding bind(final Class<?> beanClass) {
+		FieldAccessor[] accessors = new FieldAccessor[fieldNames.length];
+		for (int i = 0; i < accessors.length; i++) {
+			accessors[i] = FieldAccessor.of(beanClass, fieldNames[i]);
+		}
+		return new Binding(beanClass, accessors);
+	}
+
+	/**
+	 * Accessors of all keys resolved for one class.
+	 */
+	private static final class Binding {
+
+		private final Class<?> beanClass;
+		private final FieldAccessor[] accessors;
+
+		Binding(final Class<?> beanClass, final FieldAccessor[] accessors) {
+			this.beanClass = beanClass;
+			this.accessors = accessors;
+		}
+	}
+}
@@ -0,0 +1,184 @@
+package com.saviynt.pam.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import com.saviynt.pam.exception.BadRequestException;
+
+/**
+ * The {@link ConcurrentSortedIndex} keeps elements in {@link SortSpec} order
+ * for many concurrent writers without a global lock. Elements live in a
+ * {@link ConcurrentSkipListMap} keyed on their extracted sort keys plus an
+ * insertion sequence tiebreaker, and are identified by an id so that a new
+ * snapshot of an element replaces the old one.
+ * <p>
+ * Writes are not lock-free: a write updates the skip list inside
+ * {@link ConcurrentHashMap#compute} of its id, holding the lock of that hash
+ * bin. Writes of the same id are serialized, writes of different ids run in
+ * parallel unless their ids share a bin. Reads only traverse the skip list,
+ * they are weakly consistent, never block or wait for writers and need no
+ * copy-and-sort step.
+ */
+public class ConcurrentSortedIndex<T> implements Iterable<T> {
+
+	private final CompiledComparator<T> comparator;
+	private final Function<? super T, ?> idFunction;
+	private final ConcurrentSkipListMap<IndexKey, T> entries;
+	private final ConcurrentMap<Object, IndexKey> keysById = new ConcurrentHashMap<>();
+	private final AtomicLong sequence = new AtomicLong();
+
+	/**
+	 * @param spec
+	 * @param idFunction extracts the identity of an element
+	 */
+	public ConcurrentSortedIndex(final SortSpec spec, final Function<? super T, ?> idFunction) {
+		this(new CompiledComparator<>(spec, null), idFunction);
+	}
+
+	/**
+	 * @param type
+	 * @param spec
+	 * @param idFunction extracts the identity of an element
+	 * 
+	 * @throws BadRequestException if the class has no such property
+	 */
+	public ConcurrentSortedIndex(final Class<T> type, final SortSpec spec, final Function<? super T, ?> idFunction) {
+		this(new CompiledComparator<>(spec, type), idFunction);
+	}
+
+	private ConcurrentSortedIndex(final CompiledComparator<T> comparator, final Function<? super T, ?> idFunction) {
+		this.comparator = comparator;
+		this.idFunction = Objects.requireNonNull(idFunction);
+		this.entries = new ConcurrentSkipListMap<>((k1, k2) -> {
+			int value = comparator.compareKeys(k1.keys, k2.keys);
+			return value != 0 ? value : Long.compare(k1.sequence, k2.sequence);
+		});
+	}
+
+	/**
+	 * Insert the element, or replace the element with the same id. The new
+	 * entry is linked before the old one is unlinked, so a concurrent reader
+	 * may briefly see both but never neither. A replaced element keeps its
+	 * position among elements with equal keys.
+	 * 
+	 * @param element
+	 * 
+	 * @throws BadRequestException
+	 */
+	public void put(final T element) {
+		Object[] keys = extract(element);
+		keysById.compute(idFunction.apply(element), (id, old) -> {
+			IndexKey key = new IndexKey(keys, old == null ? sequence.getAndIncrement() : old.sequence);
+			entries.put(key, element);
+			if (old != null && entries.comparator().compare(old, key) != 0) {
+				entries.remove(old);
+			}
+			return key;
+		});
+	}
+
+	/**
+	 * Remove the element with the id of the given element.
+	 * 
+	 * @param element
+	 * @return false if no element had that id
+	 */
+	public boolean remove(final T element) {
+		return removeById(idFunction.apply(element));
+	}
+
+	/**
+	 * Remove the element with the id.
+	 * 
+	 * @param id
+	 * @return false if no element had that id
+	 */
+	public boolean removeById(final Object id) {
+		boolean[] removed = new boolean[1];
+		keysById.computeIfPresent(id, (k, old) -> {
+			entries.remove(old);
+			removed[0] = true;
+			return null;
+		});
+		return removed[0];
+	}
+
+	/**
+	 * Number of elements, exact when no write is in progress.
+	 */
+	public int size() {
+		return keysById.size();
+	}
+
+	public boolean isEmpty() {
+		return keysById.isEmpty();
+	}
+
+	/**
+	 * Get a page of the elements in sort order, weakly consistent with
+	 * concurrent writes.
+	 * 
+	 * @param offset
+	 * @param limit
+	 * @return page
+	 */
+	public List<T> page(int offset, int limit) {
+		if (offset < 0 || limit < 0) {
+			throw new BadRequestException("Invalid page request");
+		}
+		if (limit == 0) {
+			return Collections.emptyList();
+		}
+		List<T> page = new ArrayList<>(Math.min(limit, 1024));
+		Iterator<T> it = entries.values().iterator();
+		for (int skipped = 0; skipped < offset && it.hasNext(); skipped++) {
+			it.next();
+		}
+		while (page.size() < limit && it.hasNext()) {
+			page.add(it.next());
+		}
+		return page;
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return Collections.unmodifiableCollection(entries.values()).iterator();
+	}
+
+	public Stream<T> stream() {
+		return entries.values().stream();
+	}
+
+	private Object[] extract(final T element) {
+		Object[] keys = new Object[comparator.keyCount()];
+		try {
+			comparator.extract(element, keys);
+		} catch (SecurityException | IllegalArgumentException e) {
+			throw new BadRequestException("Invalid sort column");
+		}
+		return keys;
+	}
+
+	/**
+	 * Skip list key of one element.
+	 */
+	private static final class IndexKey {
+
+		private final Object[] keys;
+		private final long sequence;
+
+		IndexKey(final Object[] keys, long sequence) {
+			this.keys = keys;
+			this.sequence = sequence;
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package com.saviynt.pam.util;
+
+import com.saviynt.pam.enums.SortOrder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrentSortedIndexTest {
+
+    private final SortSpec spec = SortSpec.of("startDate", SortOrder.desc, false).then("id", SortOrder.asc, false);
+
+    @Test
+    @DisplayName("Positive: Concurrent writers leave index in comparator order")
+    void testConcurrentWriters() throws Exception{
+        ConcurrentSortedIndex<Session> index = new ConcurrentSortedIndex<>(Session.class, spec, Session::getId);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int writer = t;
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(writer);
+                    for (int i = 0; i < 2_000; i++) {
+                        int id = writer * 1_000 + random.nextInt(1_000);
+                        if (random.nextInt(4) == 0) {
+                            index.removeById(id);
+                        } else {
+                            index.put(new Session(id, "s" + id, random.nextInt(10) == 0 ? null : new Date(random.nextInt(100) * 1000L),
+                                    null, null, null, null));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        //Expected
+        List<Session> expected = new ArrayList<>();
+        index.forEach(expected::add);
+        expected.sort(spec.comparator(Session.class));
+        Set<Integer> ids = new HashSet<>();
+        expected.forEach(s -> ids.add(s.getId()));
+
+        //assert
+        Assertions.assertEquals(ids.size(), expected.size());
+        Assertions.assertEquals(index.size(), expected.size());
+        Assertions.assertIterableEquals(expected, index.page(0, Integer.MAX_VALUE));
+        Assertions.assertIterableEquals(expected.subList(5, 30), index.page(5, 25));
+    }
+
+    @Test
+    @DisplayName("Positive: Put replaces element with the same id")
+    void testReplace() throws Exception{
+        ConcurrentSortedIndex<Session> index = new ConcurrentSortedIndex<>(spec, Session::getId);
+        index.put(new Session(1, "one", new Date(1000L), null, null, null, null));
+        index.put(new Session(2, "two", new Date(2000L), null, null, null, null));
+        index.put(new Session(1, "one", new Date(3000L), null, null, null, null));
+
+        //assert
+        Assertions.assertEquals(2, index.size());
+        Assertions.assertEquals(1, index.page(0, 1).get(0).getId());
+        Assertions.assertTrue(index.removeById(1));
+        Assertions.assertFalse(index.removeById(1));
+        Assertions.assertEquals(2, index.page(0, 10).get(0).getId());
+    }
+}
@@ -0,0 +1,425 @@
+package com.saviynt.pam.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.saviynt.pam.exception.BadRequestException;
+
+/**
+ * The {@link ExternalSorter} sorts record streams that do not fit in memory
+ * with the same ordering as {@link CommonComparator}. Records are read in
+ * chunks bounded by a memory budget, each chunk is sorted on its extracted
+ * keys and spilled to a temporary file as a run of (key, payload) records,
+ * and the runs are k-way merged back into a lazy {@link Stream}, in several
+ * passes when there are more runs than can be open at once. Keys are
+ * encoded by {@link SortKeyEncoder}, so sorting and merging compare bytes
+ * and only the records that are returned are decoded.
+ */
+public final class ExternalSorter<T> {
+
+	private static final Logger log = LoggerFactory.getLogger(ExternalSorter.class);
+
+	/**
+	 * Estimated heap used by a buffered record besides its key and payload bytes.
+	 */
+	private static final int RECORD_OVERHEAD = 64;
+	private static final int MIN_READ_BUFFER = 8 * 1024;
+
+	/**
+	 * Maximum number of runs merged at once, more runs are merged in passes.
+	 */
+	static final int MAX_FAN_IN = 64;
+
+	private static final Comparator<Run> RUN_ORDER = (r1, r2) -> {
+		int value = Arrays.compareUnsigned(r1.bytes, 0, r1.keyLength, r2.bytes, 0, r2.keyLength);
+		return value != 0 ? value : Integer.compare(r1.index, r2.index);
+	};
+
+	/**
+	 * Serializes the records spilled to the temporary files.
+	 */
+	public interface RecordCodec<T> {
+
+		void write(T record, DataOutput out) throws IOException;
+
+		T read(DataInput in) throws IOException;
+	}
+
+	private final SortSpec spec;
+	private final RecordCodec<T> codec;
+	private final long memoryBudget;
+	private final Path tempDir;
+
+	/**
+	 * @param spec
+	 * @param codec
+	 * @param memoryBudget maximum bytes of buffered records
+	 * @param tempDir directory of the run files, null for the default temporary directory
+	 */
+	public ExternalSorter(final SortSpec spec, final RecordCodec<T> codec, long memoryBudget, final Path tempDir) {
+		if (memoryBudget <= 0) {
+			throw new IllegalArgumentException("Memory budget must be positive");
+		}
+		this.spec = Objects.requireNonNull(spec);
+		this.codec = Objects.requireNonNull(codec);
+		this.memoryBudget = memoryBudget;
+		this.tempDir = tempDir;
+	}
+
+	/**
+	 * Sort the records of the stream, the stream is consumed before this
+	 * method returns. The run files are deleted once the returned stream is
+	 * read to the end, it must be closed when it is not.
+	 *
+	 * @param records
+	 * @return sorted records
+	 *
+	 * @throws BadRequestException
+	 */
+	public Stream<T> sort(final Stream<T> records) {
+		try {
+			return sort(records.iterator());
+		} finally {
+			records.close();
+		}
+	}
+
+	/**
+	 * Sort the records of the iterator, the iterator is consumed before this
+	 * method returns.
+	 *
+	 * @param records
+	 * @return sorted records
+	 *
+	 * @throws BadRequestException
+	 */
+	public Stream<T> sort(final Iterator<T> records) {
+		SortKeyEncoder<T> encoder = new SortKeyEncoder<>(spec);
+		List<Path> runs = new ArrayList<>();
+		boolean sorted = false;
+		try {
+			List<Chunk> chunk = new ArrayList<>();
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(buffer);
+			long used = 0;
+			while (records.hasNext()) {
+				T record = records.next();
+				byte[] key = encoder.encode(record);
+				buffer.reset();
+				out.write(key);
+				codec.write(record, out);
+				byte[] bytes = buffer.toByteArray();
+				chunk.add(new Chunk(bytes, key.length));
+				used += bytes.length + RECORD_OVERHEAD;
+				if (used >= memoryBudget) {
+					runs.add(spill(chunk));
+					chunk.clear();
+					used = 0;
+				}
+			}
+			if (runs.isEmpty()) {
+				chunk.sort(ExternalSorter::compare);
+				sorted = true;
+				return chunk.stream().map(c -> decode(c.bytes, c.keyLength));
+			}
+			if (!chunk.isEmpty()) {
+				runs.add(spill(chunk));
+			}
+			Stream<T> merged = merge(runs);
+			sorted = true;
+			return merged;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			if (!sorted) {
+				// any failure, including codec and iterator exceptions
+				delete(runs);
+			}
+		}
+	}
+
+	/**
+	 * Sort the chunk and write it to a new run file.
+	 */
+	private Path spill(final List<Chunk> chunk) throws IOException {
+		chunk.sort(ExternalSorter::compare);
+		Path run = createRun();
+		boolean written = false;
+		try (DataOutputStream out = openRun(run)) {
+			out.writeInt(chunk.size());
+			for (Chunk c : chunk) {
+				writeRecord(out, c.bytes, c.keyLength);
+			}
+			written = true;
+		} finally {
+			if (!written) {
+				delete(Collections.singletonList(run));
+			}
+		}
+		log.debug("Spilled sorted run of {} records to {}", chunk.size(), run);
+		return run;
+	}
+
+	/**
+	 * Merge the sorted runs, records with equal keys are taken from the
+	 * earlier run first so the merge is stable. At most {@link #fanIn()} runs
+	 * are open at once, more runs are first merged in passes into fewer
+	 * intermediate runs of consecutive runs.
+	 */
+	private Stream<T> merge(final List<Path> runs) throws IOException {
+		int fanIn = fanIn();
+		int bufferSize = (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_READ_BUFFER, memoryBudget / fanIn));
+		while (runs.size() > fanIn) {
+			List<Path> merged = new ArrayList<>((runs.size() + fanIn - 1) / fanIn);
+			boolean passed = false;
+			try {
+				for (int i = 0; i < runs.size(); i += fanIn) {
+					List<Path> batch = runs.subList(i, Math.min(i + fanIn, runs.size()));
+					merged.add(batch.size() == 1 ? batch.get(0) : mergeRuns(batch, bufferSize));
+				}
+				passed = true;
+			} finally {
+				if (!passed) {
+					delete(merged);
+				}
+			}
+			log.debug("Merged {} sorted runs into {}", runs.size(), merged.size());
+			runs.clear();
+			runs.addAll(merged);
+		}
+		PriorityQueue<Run> queue = open(runs, bufferSize);
+		Iterator<T> iterator = new Iterator<T>() {
+
+			@Override
+			public boolean hasNext() {
+				return !queue.isEmpty();
+			}
+
+			@Override
+			public T next() {
+				Run run = queue.poll();
+				if (run == null) {
+					throw new NoSuchElementException();
+				}
+				T record = decode(run.bytes, run.keyLength);
+				try {
+					if (run.advance()) {
+						queue.add(run);
+					} else if (queue.isEmpty()) {
+						delete(runs);
+					}
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				return record;
+			}
+		};
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+				.onClose(() -> {
+					queue.forEach(Run::close);
+					delete(runs);
+				});
+	}
+
+	/**
+	 * Merge the runs into one new run and delete them.
+	 */
+	private Path mergeRuns(final List<Path> batch, int bufferSize) throws IOException {
+		PriorityQueue<Run> queue = open(batch, bufferSize);
+		Path merged = null;
+		boolean written = false;
+		try {
+			int count = 0;
+			for (Run run : queue) {
+				count = Math.addExact(count, run.remaining + 1);
+			}
+			merged = createRun();
+			try (DataOutputStream out = openRun(merged)) {
+				out.writeInt(count);
+				while (!queue.isEmpty()) {
+					Run run = queue.poll();
+					writeRecord(out, run.bytes, run.keyLength);
+					if (run.advance()) {
+						queue.add(run);
+					}
+				}
+			}
+			written = true;
+		} finally {
+			if (!written) {
+				queue.forEach(Run::close);
+				if (merged != null) {
+					delete(Collections.singletonList(merged));
+				}
+			}
+		}
+		delete(batch);
+		return merged;
+	}
+
+	/**
+	 * Open the runs positioned on their first record, closing the runs opened
+	 * so far when one fails to open.
+	 */
+	private static PriorityQueue<Run> open(final List<Path> runs, int bufferSize) throws IOException {
+		PriorityQueue<Run> queue = new PriorityQueue<>(runs.size(), RUN_ORDER);
+		Run run = null;
+		try {
+			for (int i = 0; i < runs.size(); i++) {
+				run = new Run(i, runs.get(i), bufferSize);
+				if (run.advance()) {
+					queue.add(run);
+				}
+				run = null;
+			}
+		} catch (IOException | RuntimeException | Error e) {
+			if (run != null) {
+				run.close();
+			}
+			queue.forEach(Run::close);
+			throw e;
+		}
+		return queue;
+	}
+
+	/**
+	 * Number of runs merged at once, bounded by {@value #MAX_FAN_IN} open
+	 * files and by read buffers of {@value #MIN_READ_BUFFER} bytes fitting
+	 * the memory budget.
+	 */
+	private int fanIn() {
+		return (int) Math.max(2, Math.min(MAX_FAN_IN, memoryBudget / MIN_READ_BUFFER));
+	}
+
+	private Path createRun() throws IOException {
+		return tempDir == null ? Files.createTempFile("sort-run-", ".bin")
+				: Files.createTempFile(tempDir, "sort-run-", ".bin");
+	}
+
+	private static DataOutputStream openRun(final Path run) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(
+				Channels.newOutputStream(FileChannel.open(run, StandardOpenOption.WRITE))));
+	}
+
+	private static void writeRecord(final DataOutput out, final byte[] bytes, int keyLength) throws IOException {
+		out.writeInt(keyLength);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private T decode(final byte[] bytes, int keyLength) {
+		try {
+			return codec.read(new DataInputStream(
+					new ByteArrayInputStream(bytes, keyLength, bytes.length - keyLength)));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void delete(final List<Path> runs) {
+		for (Path run : runs) {
+			try {
+				Files.deleteIfExists(run);
+			} catch (IOException e) {
+				log.warn("Failed to delete sorted run {}", run);
+			}
+		}
+	}
+
+	private static int compare(final Chunk c1, final Chunk c2) {
+		return Arrays.compareUnsigned(c1.bytes, 0, c1.keyLength, c2.bytes, 0, c2.keyLength);
+	}
+
+	/**
+	 * Buffered record of the current chunk, the bytes hold the encoded keys
+	 * followed by the record payload.
+	 */
+	private static final class Chunk {
+
+		private final byte[] bytes;
+		private final int keyLength;
+
+		Chunk(final byte[] bytes, int keyLength) {
+			this.bytes = bytes;
+			this.keyLength = keyLength;
+		}
+	}
+
+	/**
+	 * Read cursor over one run file, holding its current record.
+	 */
+	private static final class Run {
+
+		private final int index;
+		private final DataInputStream in;
+		private int remaining;
+		private byte[] bytes;
+		private int keyLength;
+
+		Run(int index, final Path path, int bufferSize) throws IOException {
+			this.index = index;
+			this.in = new DataInputStream(new BufferedInputStream(
+					Channels.newInputStream(FileChannel.open(path, StandardOpenOption.READ)), bufferSize));
+			try {
+				this.remaining = in.readInt();
+			} catch (IOException | RuntimeException | Error e) {
+				close();
+				throw e;
+			}
+		}
+
+		/**
+		 * Read the next record.
+		 *
+		 * @return false when the run is exhausted
+		 */
+		boolean advance() throws IOException {
+			if (remaining == 0) {
+				close();
+				return false;
+			}
+			remaining--;
+			keyLength = in.readInt();
+			bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			return true;
+		}
+
+		void close() {
+			try {
+				in.close();
+			} catch (IOException e) {
+				log.warn("Failed to close sorted run {}", index);
+			}
+		}
+	}
+}
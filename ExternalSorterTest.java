@@ -0,0 +1,200 @@
+package com.saviynt.pam.util;
+
+import com.saviynt.pam.enums.SortOrder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class ExternalSorterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Positive: External sort with spilled runs matches comparator order")
+    void testSortWithSpill() throws Exception{
+        List<Session> list = sessions(5_000);
+        SortSpec spec = SortSpec.of("duration", SortOrder.desc, true).then("endDate", SortOrder.asc, false);
+        //Expected
+        List<Integer> expected = new ArrayList<>(list).stream()
+                .sorted(spec.comparator(Session.class))
+                .map(Session::getId)
+                .collect(Collectors.toList());
+        //Sort
+        ExternalSorter<Session> sorter = new ExternalSorter<>(spec, new SessionCodec(), 16 * 1024, tempDir);
+        List<Integer> actual;
+        try (Stream<Session> sorted = sorter.sort(list.iterator())) {
+            Assertions.assertTrue(Files.list(tempDir).count() > 1);
+            actual = sorted.map(Session::getId).collect(Collectors.toList());
+        }
+
+        //assert
+        Assertions.assertIterableEquals(expected,actual);
+        Assertions.assertEquals(0,Files.list(tempDir).count());
+    }
+
+    @Test
+    @DisplayName("Positive: Runs beyond fan-in merged in passes keeping stable order")
+    void testMultiPassMerge() throws Exception{
+        List<Session> list = sessions(5_000);
+        SortSpec spec = SortSpec.of("name", SortOrder.asc, true);
+        //Expected
+        List<Integer> expected = new ArrayList<>(list).stream()
+                .sorted(spec.comparator(Session.class))
+                .map(Session::getId)
+                .collect(Collectors.toList());
+        //Sort
+        ExternalSorter<Session> sorter = new ExternalSorter<>(spec, new SessionCodec(), 32 * 1024, tempDir);
+        List<Integer> actual;
+        try (Stream<Session> sorted = sorter.sort(list.iterator())) {
+            long open = Files.list(tempDir).count();
+            Assertions.assertTrue(open > 1 && open <= 4);
+            actual = sorted.map(Session::getId).collect(Collectors.toList());
+        }
+
+        //assert
+        Assertions.assertIterableEquals(expected,actual);
+        Assertions.assertEquals(0,Files.list(tempDir).count());
+    }
+
+    @Test
+    @DisplayName("Positive: External sort within memory budget does not spill")
+    void testSortInMemory() throws Exception{
+        List<Session> list = sessions(100);
+        SortSpec spec = SortSpec.of("name", SortOrder.asc, false);
+        //Expected
+        List<Integer> expected = new ArrayList<>(list).stream()
+                .sorted(new CommonComparator<>("name", SortOrder.asc))
+                .map(Session::getId)
+                .collect(Collectors.toList());
+        //Sort
+        ExternalSorter<Session> sorter = new ExternalSorter<>(spec, new SessionCodec(), 1024 * 1024, tempDir);
+        List<Integer> actual = sorter.sort(list.stream()).map(Session::getId).collect(Collectors.toList());
+
+        //assert
+        Assertions.assertIterableEquals(expected,actual);
+        Assertions.assertEquals(0,Files.list(tempDir).count());
+    }
+
+    @Test
+    @DisplayName("Positive: Mixed Date and Timestamp keys sorted like comparator off-heap and external")
+    void testMixedTemporalKeys() throws Exception{
+        long time = 1600000000123L;
+        List<Session> list = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            long instant = time + (i % 5) * 1000L;
+            Date startDate = i % 3 == 0 ? new Date(instant) : new Timestamp(instant);
+            list.add(new Session(299 - i, null, i % 17 == 0 ? null : startDate, null, null, null, null));
+        }
+        SortSpec spec = SortSpec.of("startDate", SortOrder.asc, false).then("id", SortOrder.asc, false);
+        //Expected
+        List<Integer> expected = list.stream().sorted(spec.comparator(Session.class)).map(Session::getId)
+                .collect(Collectors.toList());
+        //Sort
+        List<Session> offHeap = new ArrayList<>(list);
+        CommonComparator.sortOffHeap(offHeap, spec);
+        ExternalSorter<Session> sorter = new ExternalSorter<>(spec, new SessionCodec(), 4 * 1024, tempDir);
+        List<Integer> actual;
+        try (Stream<Session> sorted = sorter.sort(list.iterator())) {
+            actual = sorted.map(Session::getId).collect(Collectors.toList());
+        }
+
+        //assert
+        Assertions.assertIterableEquals(expected,offHeap.stream().map(Session::getId).collect(Collectors.toList()));
+        Assertions.assertIterableEquals(expected,actual);
+    }
+
+    @Test
+    @DisplayName("Negative: Codec failure after spill deletes the run files")
+    void testCodecFailureDeletesRuns() throws Exception{
+        List<Session> list = sessions(2_000);
+        SortSpec spec = SortSpec.of("duration", SortOrder.asc, false);
+        FailingCodec codec = new FailingCodec(1_000);
+        ExternalSorter<Session> sorter = new ExternalSorter<>(spec, codec, 16 * 1024, tempDir);
+
+        //assert
+        Assertions.assertThrows(IllegalStateException.class,()->{
+            sorter.sort(list.iterator());
+        });
+        Assertions.assertTrue(codec.spilled);
+        Assertions.assertEquals(0,Files.list(tempDir).count());
+    }
+
+    private static List<Session> sessions(int size) {
+        Random random = new Random(11);
+        List<Session> list = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            list.add(new Session(i, random.nextInt(8) == 0 ? null : "s" + random.nextInt(50), null,
+                    random.nextInt(8) == 0 ? null : new Timestamp(1600000000000L + random.nextInt(1000) * 1000L),
+                    random.nextInt(8) == 0 ? null : (long) random.nextInt(100), null, null));
+        }
+        return list;
+    }
+
+    private static class SessionCodec implements ExternalSorter.RecordCodec<Session> {
+
+        @Override
+        public void write(Session session, DataOutput out) throws IOException {
+            out.writeInt(session.getId());
+            Date startDate = session.getStartDate();
+            out.writeByte(startDate == null ? 0 : startDate instanceof Timestamp ? 2 : 1);
+            if (startDate != null) {
+                out.writeLong(startDate.getTime());
+            }
+            out.writeBoolean(session.getName() != null);
+            if (session.getName() != null) {
+                out.writeUTF(session.getName());
+            }
+            out.writeBoolean(session.getEndDate() != null);
+            if (session.getEndDate() != null) {
+                out.writeLong(session.getEndDate().getTime());
+            }
+            out.writeBoolean(session.getDuration() != null);
+            if (session.getDuration() != null) {
+                out.writeLong(session.getDuration());
+            }
+        }
+
+        @Override
+        public Session read(DataInput in) throws IOException {
+            int id = in.readInt();
+            byte startType = in.readByte();
+            Date startDate = startType == 0 ? null : startType == 2 ? new Timestamp(in.readLong()) : new Date(in.readLong());
+            String name = in.readBoolean() ? in.readUTF() : null;
+            Timestamp endDate = in.readBoolean() ? new Timestamp(in.readLong()) : null;
+            Long duration = in.readBoolean() ? in.readLong() : null;
+            return new Session(id, name, startDate, endDate, duration, null, null);
+        }
+    }
+
+    private class FailingCodec extends SessionCodec {
+
+        private final int failAt;
+        private int written;
+        private boolean spilled;
+
+        FailingCodec(int failAt) {
+            this.failAt = failAt;
+        }
+
+        @Override
+        public void write(Session session, DataOutput out) throws IOException {
+            if (++written == failAt) {
+                spilled = Files.list(tempDir).count() > 0;
+                throw new IllegalStateException("codec failure");
+            }
+            super.write(session, out);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.saviynt.pam.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link FieldAccessor} holds the pre-resolved getter of one sortable
+ * property or property path of a POJO class, see {@link SortSchema}.
+ * Accessors are resolved once per (class, fieldName) and shared across all
+ * comparator instances and threads.
+ */
+final class FieldAccessor {
+
+	private static final Logger log = LoggerFactory.getLogger(FieldAccessor.class);
+
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+	private static final ClassValue<ConcurrentMap<String, FieldAccessor>> ACCESSORS = new ClassValue<>() {
+		@Override
+		protected ConcurrentMap<String, FieldAccessor> computeValue(Class<?> beanClass) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+
+	private static final MethodHandle IS_NULL;
+	private static final MethodHandle NULL_VALUE = MethodHandles
+			.dropArguments(MethodHandles.constant(Object.class, null), 0, Object.class);
+
+	static {
+		try {
+			IS_NULL = MethodHandles.lookup().findStatic(Objects.class, "isNull",
+					MethodType.methodType(boolean.class, Object.class));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private final Class<?> beanClass;
+	private final String fieldName;
+	private final Class<?> type;
+	private final Method readMethod;
+	private final MethodHandle getter;
+
+	private FieldAccessor(Class<?> beanClass, String fieldName, Class<?> type, Method readMethod,
+			MethodHandle getter) {
+		this.beanClass = beanClass;
+		this.fieldName = fieldName;
+		this.type = type;
+		this.readMethod = readMethod;
+		this.getter = getter;
+	}
+
+	/**
+	 * Get the cached accessor for the field, resolving it on first use.
+	 *
+	 * @param beanClass
+	 * @param fieldName property name or dotted path
+	 * @return accessor
+	 *
+	 * @throws IllegalArgumentException if the class has no sortable property with that name
+	 */
+	static FieldAccessor of(final Class<?> beanClass, final String fieldName) {
+		Objects.requireNonNull(fieldName);
+		ConcurrentMap<String, FieldAccessor> accessors = ACCESSORS.get(beanClass);
+		FieldAccessor accessor = accessors.get(fieldName);
+		if (accessor == null) {
+			accessor = accessors.computeIfAbsent(fieldName, name -> resolve(beanClass, name));
+		} else if (!SortSchema.isSortableType(accessor.getType())) {
+			throw new IllegalArgumentException("Invalid property");
+		}
+		return accessor;
+	}
+
+	/**
+	 * Resolve the members of the field from the {@link SortSchema} of the class
+	 * into one {@link MethodHandle}. The handles of a dotted path are chained so
+	 * that a null along the path reads as a null value. Unknown and unsortable
+	 * properties are rejected by a lookup in the cached schema.
+	 *
+	 * @param beanClass
+	 * @param fieldName
+	 * @return accessor
+	 */
+	private static FieldAccessor resolve(final Class<?> beanClass, final String fieldName) {
+		List<Member> path = SortSchema.of(beanClass).resolve(fieldName);
+		if (path == null) {
+			log.debug("Invalid property {}.{}", beanClass.getName(), fieldName);
+			throw new IllegalArgumentException("Invalid property");
+		}
+		try {
+			MethodHandle getter = unreflect(path.get(0));
+			for (int i = 1; i < path.size(); i++) {
+				getter = MethodHandles.filterReturnValue(getter,
+						MethodHandles.guardWithTest(IS_NULL, NULL_VALUE, unreflect(path.get(i))));
+			}
+			Member last = path.get(path.size() - 1);
+			Method readMethod = path.size() == 1 && last instanceof Method ? (Method) last : null;
+			return new FieldAccessor(beanClass, fieldName, SortSchema.typeOf(last), readMethod, getter);
+		} catch (IllegalAccessException e) {
+			throw new IllegalArgumentException("Invalid property " + beanClass.getName() + "." + fieldName, e);
+		}
+	}
+
+	private static MethodHandle unreflect(final Member member) throws IllegalAccessException {
+		MethodHandle handle;
+		AccessibleObject accessible = (AccessibleObject) member;
+		try {
+			handle = unreflect(MethodHandles.lookup(), member);
+		} catch (IllegalAccessException e) {
+			accessible.setAccessible(true);
+			handle = unreflect(MethodHandles.lookup(), member);
+		}
+		return handle.asType(GETTER_TYPE);
+	}
+
+	private static MethodHandle unreflect(final MethodHandles.Lookup lookup, final Member member)
+			throws IllegalAccessException {
+		return member instanceof Method ? lookup.unreflect((Method) member) : lookup.unreflectGetter((Field) member);
+	}
+
+	/**
+	 * Get actual value for the field. Failures are not logged here, the
+	 * caller logs them with its sort context.
+	 *
+	 * @param bean
+	 * @return value
+	 *
+	 * @throws IllegalArgumentException with a checked exception of the getter
+	 *                                  as cause, runtime exceptions and errors
+	 *                                  of the getter are rethrown unchanged
+	 */
+	Object get(final Object bean) {
+		try {
+			return (Object) getter.invokeExact(bean);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalArgumentException("Failed to read property " + beanClass.getName() + "." + fieldName, e);
+		}
+	}
+
+	Class<?> getBeanClass() {
+		return beanClass;
+	}
+
+	String getFieldName() {
+		return fieldName;
+	}
+
+	Class<?> getType() {
+		return type;
+	}
+
+	/**
+	 * Get the {@code (Object)Object} getter handle of the field.
+	 */
+	MethodHandle getHandle() {
+		return getter;
+	}
+
+	/**
+	 * Get the getter method, null when the field is read from a public field
+	 * or through a dotted path.
+	 */
+	Method getReadMethod() {
+		return readMethod;
+	}
+}
@@ -0,0 +1,118 @@
+package com.saviynt.pam.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.saviynt.pam.enums.SortOrder;
+import com.saviynt.pam.util.CommonComparatorBenchmark.Row;
+
+/**
+ * JMH benchmarks of the {@link GeneratedComparators} against the reflective
+ * {@link CommonComparator} and a {@link Comparator#comparing} baseline with a
+ * type profile shaped like production, where one JVM sorts on many fields.
+ * The trial setup sorts on every field with every comparator before the
+ * measurement, and an operation then sorts the list on each field in turn,
+ * so shared call sites see all getters and value types.
+ *
+ * <pre>
+ * java -cp benchmarks.jar com.saviynt.pam.util.GeneratedComparatorBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class GeneratedComparatorBenchmark {
+
+	private static final String[] FIELDS = { "name", "id", "duration", "cost", "timeOut", "startDate", "endDate" };
+	private static final int WARMUP_ROUNDS = 20;
+
+	@Param({ "10000" })
+	private int size;
+
+	@Param({ "0.1" })
+	private double nullDensity;
+
+	private List<Row> source;
+	private List<Comparator<Row>> baseline;
+	private List<Comparator<Row>> reflective;
+	private List<Comparator<Row>> generated;
+
+	@Setup(Level.Trial)
+	public void setUpTrial() {
+		Random random = new Random(31);
+		source = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			source.add(Row.random(i, random, nullDensity));
+		}
+		baseline = new ArrayList<>(FIELDS.length * 2);
+		reflective = new ArrayList<>(FIELDS.length * 2);
+		generated = new ArrayList<>(FIELDS.length * 2);
+		for (String field : FIELDS) {
+			for (SortOrder sortOrder : SortOrder.values()) {
+				baseline.add(CommonComparatorBenchmark.baseline(field, sortOrder));
+				reflective.add(new CommonComparator<>(Row.class, field, sortOrder, false));
+				generated.add(CommonComparator.generated(Row.class, field, sortOrder, false));
+			}
+		}
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			sortAll(baseline);
+			sortAll(reflective);
+			sortAll(generated);
+		}
+	}
+
+	@Benchmark
+	public List<Row> baselineAllFields() {
+		return sortAll(baseline);
+	}
+
+	@Benchmark
+	public List<Row> commonComparatorAllFields() {
+		return sortAll(reflective);
+	}
+
+	@Benchmark
+	public List<Row> generatedComparatorAllFields() {
+		return sortAll(generated);
+	}
+
+	private List<Row> sortAll(final List<Comparator<Row>> comparators) {
+		List<Row> work = null;
+		for (Comparator<Row> comparator : comparators) {
+			work = new ArrayList<>(source);
+			Collections.sort(work, comparator);
+		}
+		return work;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(GeneratedComparatorBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+}
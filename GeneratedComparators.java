@@ -0,0 +1,270 @@
+package com.saviynt.pam.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.sql.Timestamp;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.saviynt.pam.enums.SortOrder;
+import com.saviynt.pam.exception.BadRequestException;
+
+/**
+ * The {@link GeneratedComparators} defines a dedicated comparator class per
+ * (bean class, field, order, null position). The compare logic is a
+ * {@link MethodHandle} chain of the getter and a typed value comparison with
+ * the order and null position bound as constants. Every comparator is a
+ * hidden class defined from the bytes of {@link Template} that holds its
+ * chain in a static final field, so the JIT sees one constant chain per class
+ * and inlines the getter and the comparison at that call site, instead of a
+ * shared call site that goes megamorphic once several fields are sorted.
+ * Primitive getters are compared without boxing. When the class cannot be
+ * defined the reflective {@link CommonComparator} is used.
+ */
+final class GeneratedComparators {
+
+	private static final Logger log = LoggerFactory.getLogger(GeneratedComparators.class);
+	private static final RateLimitedLogger errorLog = new RateLimitedLogger(log);
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+	private static final MethodType VALUE_COMPARE_TYPE = MethodType.methodType(int.class, Object.class,
+			Object.class, int.class, int.class);
+	private static final MethodType COMPARE_TYPE = MethodType.methodType(int.class, Object.class, Object.class);
+
+	private static final byte[] TEMPLATE_BYTES = readTemplate();
+
+	private static final ClassValue<ConcurrentMap<String, Comparator<?>>> COMPARATORS = new ClassValue<>() {
+		@Override
+		protected ConcurrentMap<String, Comparator<?>> computeValue(Class<?> beanClass) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+
+	private GeneratedComparators() {
+	}
+
+	/**
+	 * Get the cached comparator, generating it on first use.
+	 *
+	 * @param type
+	 * @param fieldName
+	 * @param sortOrder
+	 * @param isNullFirst
+	 * @return comparator
+	 *
+	 * @throws IllegalArgumentException if the class has no such property
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> Comparator<T> of(final Class<T> type, final String fieldName, SortOrder sortOrder,
+			boolean isNullFirst) {
+		FieldAccessor accessor = FieldAccessor.of(type, fieldName);
+		int order = SortOrder.asc == sortOrder ? 1 : -1;
+		int nullPos = isNullFirst ? -1 : 1;
+		String key = fieldName + ':' + order + ':' + nullPos;
+		return (Comparator<T>) COMPARATORS.get(type).computeIfAbsent(key,
+				k -> generate(type, accessor, sortOrder, isNullFirst, order, nullPos));
+	}
+
+	private static <T> Comparator<?> generate(final Class<T> type, final FieldAccessor accessor,
+			SortOrder sortOrder, boolean isNullFirst, int order, int nullPos) {
+		if (TEMPLATE_BYTES == null) {
+			return new CommonComparator<>(type, accessor.getFieldName(), sortOrder, isNullFirst);
+		}
+		try {
+			MethodHandle compare = compareHandle(accessor, order, nullPos);
+			MethodHandles.Lookup lookup = LOOKUP.defineHiddenClassWithClassData(TEMPLATE_BYTES, compare, true);
+			return (Comparator<?>) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+					.invoke();
+		} catch (Throwable e) {
+			log.debug("Falling back to reflective comparator for {}.{}: {}", type.getName(),
+					accessor.getFieldName(), e.toString());
+			return new CommonComparator<>(type, accessor.getFieldName(), sortOrder, isNullFirst);
+		}
+	}
+
+	/**
+	 * Build the {@code (Object, Object)int} chain of the field: the getter
+	 * applied to both elements, then the typed comparison with the order and
+	 * null position inserted as constants.
+	 */
+	private static MethodHandle compareHandle(final FieldAccessor accessor, int order, int nullPos)
+			throws ReflectiveOperationException {
+		Method readMethod = accessor.getReadMethod();
+		if (readMethod != null && readMethod.getReturnType().isPrimitive()
+				&& readMethod.getReturnType() != boolean.class) {
+			Class<?> primitive = readMethod.getReturnType();
+			Class<?> compareType = primitive == long.class ? long.class
+					: primitive == double.class || primitive == float.class ? double.class : int.class;
+			MethodHandle getter = LOOKUP.unreflect(readMethod);
+			getter = getter.asType(MethodType.methodType(compareType, Object.class));
+			MethodHandle compare = LOOKUP.findStatic(GeneratedComparators.class, "comparePrimitive",
+					MethodType.methodType(int.class, compareType, compareType, int.class));
+			compare = MethodHandles.insertArguments(compare, 2, order);
+			return MethodHandles.filterArguments(compare, 0, getter, getter);
+		}
+		MethodHandle compare = LOOKUP.findStatic(GeneratedComparators.class, templateName(accessor.getType()),
+				VALUE_COMPARE_TYPE);
+		compare = MethodHandles.insertArguments(compare, 2, order, nullPos);
+		return MethodHandles.filterArguments(compare, 0, accessor.getHandle(), accessor.getHandle())
+				.asType(COMPARE_TYPE);
+	}
+
+	private static String templateName(final Class<?> type) {
+		if (!ValueComparators.isNaturalOrder(type)) {
+			return "compareObject";
+		}
+		if (type == Integer.class || type == int.class) {
+			return "compareInteger";
+		}
+		if (type == Long.class || type == long.class) {
+			return "compareLong";
+		}
+		if (type == Double.class || type == double.class) {
+			return "compareDouble";
+		}
+		if (type == Float.class || type == float.class) {
+			return "compareFloat";
+		}
+		if (type == String.class) {
+			return "compareString";
+		}
+		if (type == Timestamp.class || type == Date.class) {
+			return "compareDate";
+		}
+		return "compareObject";
+	}
+
+	/**
+	 * Read the class file of {@link Template}, the hidden comparator classes
+	 * are defined from it.
+	 */
+	private static byte[] readTemplate() {
+		try (InputStream in = Template.class.getResourceAsStream(Template.class.getName()
+				.substring(Template.class.getPackageName().length() + 1) + ".class")) {
+			return in == null ? null : in.readAllBytes();
+		} catch (IOException e) {
+			log.debug("Generated comparators are disabled", e);
+			return null;
+		}
+	}
+
+	private static int compareNull(final Object v1, final Object v2, int nullPos) {
+		if (v1 == v2) {
+			return 0;
+		}
+		return v1 == null ? nullPos : -nullPos;
+	}
+
+	static int comparePrimitive(int v1, int v2, int order) {
+		return Integer.compare(v1, v2) * order;
+	}
+
+	static int comparePrimitive(long v1, long v2, int order) {
+		return Long.compare(v1, v2) * order;
+	}
+
+	static int comparePrimitive(double v1, double v2, int order) {
+		return Double.compare(v1, v2) * order;
+	}
+
+	static int compareInteger(Object v1, Object v2, int order, int nullPos) {
+		if (v1 == null || v2 == null) {
+			return compareNull(v1, v2, nullPos);
+		}
+		return Integer.compare((Integer) v1, (Integer) v2) * order;
+	}
+
+	static int compareLong(Object v1, Object v2, int order, int nullPos) {
+		if (v1 == null || v2 == null) {
+			return compareNull(v1, v2, nullPos);
+		}
+		return Long.compare((Long) v1, (Long) v2) * order;
+	}
+
+	static int compareDouble(Object v1, Object v2, int order, int nullPos) {
+		if (v1 == null || v2 == null) {
+			return compareNull(v1, v2, nullPos);
+		}
+		return Double.compare((Double) v1, (Double) v2) * order;
+	}
+
+	static int compareFloat(Object v1, Object v2, int order, int nullPos) {
+		if (v1 == null || v2 == null) {
+			return compareNull(v1, v2, nullPos);
+		}
+		return Float.compare((Float) v1, (Float) v2) * order;
+	}
+
+	static int compareString(Object v1, Object v2, int order, int nullPos) {
+		if (v1 == null || v2 == null) {
+			return compareNull(v1, v2, nullPos);
+		}
+		return ((String) v1).compareTo((String) v2) * order;
+	}
+
+	static int compareDate(Object v1, Object v2, int order, int nullPos) {
+		if (v1 == null || v2 == null) {
+			return compareNull(v1, v2, nullPos);
+		}
+		return ((Date) v1).compareTo((Date) v2) * order;
+	}
+
+	static int compareObject(Object v1, Object v2, int order, int nullPos) {
+		return CommonComparator.compareKeys(v1, v2, order, nullPos);
+	}
+
+	/**
+	 * Map a failure of the getter or the comparison to the
+	 * {@link BadRequestException} of {@link CommonComparator#compare}.
+	 */
+	static BadRequestException failed(final Throwable e) {
+		errorLog.error("Invalid sort column", e);
+		return new BadRequestException("Invalid sort column");
+	}
+
+	/**
+	 * Class file template of the generated comparators, never loaded as
+	 * itself. Each hidden class defined from it reads its compare chain from
+	 * its class data into the constant {@link #COMPARE}.
+	 */
+	static final class Template implements Comparator<Object> {
+
+		private static final MethodHandle COMPARE;
+
+		static {
+			try {
+				COMPARE = MethodHandles.classData(MethodHandles.lookup(), ConstantDescs.DEFAULT_NAME,
+						MethodHandle.class);
+			} catch (IllegalAccessException e) {
+				throw new ExceptionInInitializerError(e);
+			}
+		}
+
+		Template() {
+		}
+
+		@Override
+		public int compare(Object t1, Object t2) {
+			try {
+				return (int) COMPARE.invokeExact(t1, t2);
+			} catch (SecurityException | IllegalArgumentException | ClassCastException e) {
+				throw failed(e);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				// checked exception of the getter
+				throw failed(e);
+			}
+		}
+	}
+}
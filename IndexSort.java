@@ -0,0 +1,264 @@
+package com.saviynt.pam.util;
+
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The {@link IndexSort} sorts an array of element indices on a
+ * {@link SortKeyColumn} and applies the resulting permutation to the list.
+ * The sort is stable, equal keys keep their original order. Large inputs are
+ * sorted with a fork-join merge sort that gives the same result as the
+ * sequential one.
+ * <p>
+ * The keys are scanned once first, lists that come from storage already
+ * ordered are returned as they are, strictly descending keys are reversed and
+ * keys made of a few ascending runs are sorted by merging the runs.
+ */
+final class IndexSort {
+
+	private static final int INSERTION_SORT_THRESHOLD = 32;
+	/**
+	 * Minimum number of elements before the sort runs in parallel, smaller
+	 * ranges are not split into further tasks.
+	 */
+	static final int PARALLEL_THRESHOLD = 1 << 13;
+	/**
+	 * Minimum number of elements before integer and temporal keys are radix
+	 * sorted, below it the fixed cost of the byte histograms does not pay off.
+	 */
+	static final int RADIX_THRESHOLD = 1 << 10;
+	/**
+	 * Maximum number of ascending runs merged instead of sorting the keys,
+	 * runs must also be {@value #INSERTION_SORT_THRESHOLD} keys long on average.
+	 */
+	static final int MAX_RUNS = 64;
+
+	/**
+	 * How the indices were sorted.
+	 */
+	enum Strategy {
+		PRESORTED, REVERSED, RUN_MERGE, RADIX, MERGE
+	}
+
+	private IndexSort() {
+	}
+
+	/**
+	 * Sort the indices 0..size-1 on the keys of the column.
+	 * 
+	 * @param column
+	 * @param size
+	 * @return sorted indices
+	 */
+	static int[] sort(final SortKeyColumn column, int size) {
+		return sort(column, size, new Sorter());
+	}
+
+	/**
+	 * Sort the indices 0..size-1 on the keys of the column, taking the index
+	 * arrays and buffers from the sorter.
+	 * 
+	 * @param column
+	 * @param size
+	 * @param scratch
+	 * @return sorted indices in the first size elements of an array of the
+	 *         sorter, valid until its next sort
+	 */
+	static int[] sort(final SortKeyColumn column, int size, final Sorter scratch) {
+		int[] runStarts = scratch.runStarts(Math.max(1, Math.min(MAX_RUNS, size / INSERTION_SORT_THRESHOLD)) + 1);
+		int runs = scanRuns(column, size, runStarts);
+		int[] indices = scratch.indices(size);
+		if (runs == 1 || runs == 0) {
+			for (int i = 0; i < size; i++) {
+				indices[i] = runs == 1 ? i : size - 1 - i;
+			}
+			column.sortedWith(runs == 1 ? Strategy.PRESORTED : Strategy.REVERSED);
+			return indices;
+		}
+		for (int i = 0; i < size; i++) {
+			indices[i] = i;
+		}
+		if (runs > 1) {
+			column.sortedWith(Strategy.RUN_MERGE);
+			return mergeRuns(indices, scratch.buffer(size), size, runStarts, runs, column);
+		}
+		SortKeyColumn.RadixColumn radixColumn = size >= RADIX_THRESHOLD ? column.radixColumn() : null;
+		if (radixColumn != null) {
+			column.sortedWith(Strategy.RADIX);
+			return RadixSort.sort(radixColumn, size, scratch);
+		}
+		column.sortedWith(Strategy.MERGE);
+		int[] buffer = scratch.buffer(size);
+		System.arraycopy(indices, 0, buffer, 0, size);
+		if (size >= PARALLEL_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1) {
+			ForkJoinPool.commonPool().invoke(new MergeSortTask(buffer, indices, 0, size, column));
+		} else {
+			mergeSort(buffer, indices, 0, size, column);
+		}
+		return indices;
+	}
+
+	/**
+	 * Count the ascending runs of the keys in one pass, giving up as soon as
+	 * there are more runs than {@code runStarts} can hold and the keys are not
+	 * strictly descending.
+	 * 
+	 * @param column
+	 * @param size
+	 * @param runStarts receives the start of every run followed by size
+	 * @return number of runs, 0 when the keys are strictly descending, -1 when
+	 *         there are too many runs
+	 */
+	private static int scanRuns(final SortKeyColumn column, int size, int[] runStarts) {
+		int maxRuns = runStarts.length - 1;
+		int runs = 1;
+		boolean descending = size > 1;
+		for (int i = 1; i < size; i++) {
+			if (column.compare(i - 1, i) > 0) {
+				if (runs < maxRuns) {
+					runStarts[runs] = i;
+				}
+				runs++;
+				if (runs > maxRuns && !descending) {
+					return -1;
+				}
+			} else {
+				descending = false;
+				if (runs > maxRuns) {
+					return -1;
+				}
+			}
+		}
+		if (descending) {
+			return 0;
+		}
+		runStarts[runs] = size;
+		return runs;
+	}
+
+	/**
+	 * Merge adjacent ascending runs pairwise until one run is left.
+	 */
+	private static int[] mergeRuns(int[] indices, int[] buffer, int size, int[] runStarts, int runs,
+			final SortKeyColumn column) {
+		int[] src = indices;
+		int[] dest = buffer;
+		while (runs > 1) {
+			int merged = 0;
+			for (int k = 0; k < runs; k += 2) {
+				int from = runStarts[k];
+				if (k + 1 < runs) {
+					merge(src, dest, from, runStarts[k + 1], runStarts[k + 2], column);
+				} else {
+					System.arraycopy(src, from, dest, from, size - from);
+				}
+				runStarts[merged++] = from;
+			}
+			runStarts[merged] = size;
+			runs = merged;
+			int[] swap = src;
+			src = dest;
+			dest = swap;
+		}
+		return src;
+	}
+
+	/**
+	 * Stable merge sort of {@code dest[from, to)}, {@code src} must hold the
+	 * same indices on entry and is used as the merge buffer.
+	 */
+	private static void mergeSort(int[] src, int[] dest, int from, int to, final SortKeyColumn column) {
+		int length = to - from;
+		if (length <= INSERTION_SORT_THRESHOLD) {
+			insertionSort(dest, from, to, column);
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		mergeSort(dest, src, from, mid, column);
+		mergeSort(dest, src, mid, to, column);
+
+		merge(src, dest, from, mid, to, column);
+	}
+
+	/**
+	 * Merge the sorted ranges {@code src[from, mid)} and {@code src[mid, to)}
+	 * into {@code dest[from, to)}.
+	 */
+	private static void merge(int[] src, int[] dest, int from, int mid, int to, final SortKeyColumn column) {
+		if (column.compare(src[mid - 1], src[mid]) <= 0) {
+			System.arraycopy(src, from, dest, from, to - from);
+			return;
+		}
+		for (int i = from, p = from, q = mid; i < to; i++) {
+			if (q >= to || p < mid && column.compare(src[p], src[q]) <= 0) {
+				dest[i] = src[p++];
+			} else {
+				dest[i] = src[q++];
+			}
+		}
+	}
+
+	/**
+	 * Fork-join variant of {@link #mergeSort}, splits the range the same way so
+	 * the result is identical to the sequential sort.
+	 */
+	private static final class MergeSortTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int[] src;
+		private final int[] dest;
+		private final int from;
+		private final int to;
+		private final transient SortKeyColumn column;
+
+		MergeSortTask(int[] src, int[] dest, int from, int to, final SortKeyColumn column) {
+			this.src = src;
+			this.dest = dest;
+			this.from = from;
+			this.to = to;
+			this.column = column;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from < PARALLEL_THRESHOLD) {
+				mergeSort(src, dest, from, to, column);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new MergeSortTask(dest, src, from, mid, column), new MergeSortTask(dest, src, mid, to, column));
+			merge(src, dest, from, mid, to, column);
+		}
+	}
+
+	private static void insertionSort(int[] indices, int from, int to, final SortKeyColumn column) {
+		for (int i = from + 1; i < to; i++) {
+			int current = indices[i];
+			int j = i - 1;
+			while (j >= from && column.compare(indices[j], current) > 0) {
+				indices[j + 1] = indices[j];
+				j--;
+			}
+			indices[j + 1] = current;
+		}
+	}
+
+	/**
+	 * Reorder the list so that position i holds {@code elements[sorted[i]]}.
+	 * 
+	 * @param list
+	 * @param elements snapshot of the list taken before sorting
+	 * @param sorted
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> void apply(final List<T> list, final Object[] elements, final int[] sorted) {
+		ListIterator<T> it = list.listIterator();
+		for (int index : sorted) {
+			it.next();
+			it.set((T) elements[index]);
+		}
+	}
+}
@@ -0,0 +1,240 @@
+package com.saviynt.pam.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.ListIterator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link OffHeapKeyBuffer} holds the encoded sort keys of a list in
+ * direct memory, so that sorting a very large list does not fill the young
+ * generation with key objects. The key bytes are appended to one region and
+ * every element has a fixed size slot of (key offset, key length, element
+ * index) in another, the slots are merge sorted on their keys and the sorted
+ * element indices read back. The direct memory is freed on {@link #close()}
+ * when the JDK allows it, otherwise when the buffers are collected.
+ * Not thread-safe.
+ */
+final class OffHeapKeyBuffer implements AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(OffHeapKeyBuffer.class);
+
+	private static final int SLOT_SIZE = 3 * Integer.BYTES;
+	private static final int INSERTION_SORT_THRESHOLD = 32;
+	private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+	private static final MethodHandle INVOKE_CLEANER = findCleaner();
+
+	private ByteBuffer keys;
+	private ByteBuffer slots;
+	private ByteBuffer scratch;
+	private int size;
+
+	/**
+	 * @param capacity number of elements
+	 * @param keyBytes expected total size of the encoded keys
+	 */
+	OffHeapKeyBuffer(int capacity, long keyBytes) {
+		if ((long) capacity * SLOT_SIZE > MAX_CAPACITY) {
+			throw new IllegalStateException("Too many elements for off-heap sort");
+		}
+		this.slots = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+		this.scratch = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+		this.keys = ByteBuffer.allocateDirect((int) Math.max(64, Math.min(keyBytes, MAX_CAPACITY)));
+	}
+
+	/**
+	 * Append the key of the element with the index.
+	 *
+	 * @param index
+	 * @param key
+	 */
+	void add(int index, final SortKeyEncoder.KeyBuffer key) {
+		ensureKeyCapacity(key.length());
+		int slot = size++ * SLOT_SIZE;
+		slots.putInt(slot, keys.position());
+		slots.putInt(slot + Integer.BYTES, key.length());
+		slots.putInt(slot + 2 * Integer.BYTES, index);
+		key.writeTo(keys);
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Get the index of the element at the position, in sort order after
+	 * {@link #sort()}.
+	 *
+	 * @param position
+	 * @return element index
+	 */
+	int indexAt(int position) {
+		return slots.getInt(position * SLOT_SIZE + 2 * Integer.BYTES);
+	}
+
+	/**
+	 * Reorder the list into sort order after {@link #sort()}.
+	 *
+	 * @param list
+	 * @param elements snapshot of the list taken before sorting
+	 */
+	@SuppressWarnings("unchecked")
+	<T> void apply(final List<T> list, final Object[] elements) {
+		ListIterator<T> it = list.listIterator();
+		for (int i = 0; i < size; i++) {
+			it.next();
+			it.set((T) elements[indexAt(i)]);
+		}
+	}
+
+	/**
+	 * Stable bottom-up merge sort of the slots on their keys, insertion
+	 * sorting runs of {@value #INSERTION_SORT_THRESHOLD} first.
+	 */
+	void sort() {
+		for (int low = 0; low < size; low += INSERTION_SORT_THRESHOLD) {
+			insertionSort(slots, low, Math.min(low + INSERTION_SORT_THRESHOLD, size));
+		}
+		ByteBuffer src = slots;
+		ByteBuffer dest = scratch;
+		for (int width = INSERTION_SORT_THRESHOLD; width < size; width <<= 1) {
+			for (int low = 0; low < size; low += width << 1) {
+				int mid = Math.min(low + width, size);
+				int high = Math.min(low + (width << 1), size);
+				merge(src, dest, low, mid, high);
+			}
+			ByteBuffer swap = src;
+			src = dest;
+			dest = swap;
+		}
+		slots = src;
+		scratch = dest;
+	}
+
+	private void insertionSort(final ByteBuffer buffer, int low, int high) {
+		for (int i = low + 1; i < high; i++) {
+			int offset = buffer.getInt(i * SLOT_SIZE);
+			int length = buffer.getInt(i * SLOT_SIZE + Integer.BYTES);
+			int index = buffer.getInt(i * SLOT_SIZE + 2 * Integer.BYTES);
+			int j = i;
+			for (; j > low && compare(buffer, j - 1, offset, length) > 0; j--) {
+				copySlot(buffer, j - 1, buffer, j);
+			}
+			buffer.putInt(j * SLOT_SIZE, offset);
+			buffer.putInt(j * SLOT_SIZE + Integer.BYTES, length);
+			buffer.putInt(j * SLOT_SIZE + 2 * Integer.BYTES, index);
+		}
+	}
+
+	private void merge(final ByteBuffer src, final ByteBuffer dest, int low, int mid, int high) {
+		if (mid >= high || compare(src, mid - 1, src.getInt(mid * SLOT_SIZE),
+				src.getInt(mid * SLOT_SIZE + Integer.BYTES)) <= 0) {
+			for (int i = low; i < high; i++) {
+				copySlot(src, i, dest, i);
+			}
+			return;
+		}
+		for (int i = low, p = low, q = mid; i < high; i++) {
+			if (q >= high || p < mid && compare(src, p, src.getInt(q * SLOT_SIZE),
+					src.getInt(q * SLOT_SIZE + Integer.BYTES)) <= 0) {
+				copySlot(src, p++, dest, i);
+			} else {
+				copySlot(src, q++, dest, i);
+			}
+		}
+	}
+
+	/**
+	 * Compare the key of the slot with the key at the offset, unsigned and
+	 * eight bytes at a time.
+	 */
+	private int compare(final ByteBuffer buffer, int slot, int offset2, int length2) {
+		int offset1 = buffer.getInt(slot * SLOT_SIZE);
+		int length1 = buffer.getInt(slot * SLOT_SIZE + Integer.BYTES);
+		int length = Math.min(length1, length2);
+		int i = 0;
+		for (; i + Long.BYTES <= length; i += Long.BYTES) {
+			long l1 = keys.getLong(offset1 + i);
+			long l2 = keys.getLong(offset2 + i);
+			if (l1 != l2) {
+				return Long.compareUnsigned(l1, l2);
+			}
+		}
+		for (; i < length; i++) {
+			int value = Byte.toUnsignedInt(keys.get(offset1 + i)) - Byte.toUnsignedInt(keys.get(offset2 + i));
+			if (value != 0) {
+				return value;
+			}
+		}
+		return length1 - length2;
+	}
+
+	private static void copySlot(final ByteBuffer src, int from, final ByteBuffer dest, int to) {
+		dest.putLong(to * SLOT_SIZE, src.getLong(from * SLOT_SIZE));
+		dest.putInt(to * SLOT_SIZE + Long.BYTES, src.getInt(from * SLOT_SIZE + Long.BYTES));
+	}
+
+	private void ensureKeyCapacity(int length) {
+		if (keys.remaining() >= length) {
+			return;
+		}
+		long required = (long) keys.position() + length;
+		if (required > MAX_CAPACITY) {
+			throw new IllegalStateException("Sort keys exceed off-heap buffer size");
+		}
+		int capacity = (int) Math.min(MAX_CAPACITY, Math.max(required, (long) keys.capacity() * 2));
+		ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+		keys.flip();
+		grown.put(keys);
+		free(keys);
+		keys = grown;
+	}
+
+	/**
+	 * Release the direct memory, the buffer must not be used afterwards.
+	 */
+	@Override
+	public void close() {
+		free(keys);
+		free(slots);
+		free(scratch);
+		keys = null;
+		slots = null;
+		scratch = null;
+	}
+
+	private static void free(final ByteBuffer buffer) {
+		if (buffer == null || INVOKE_CLEANER == null) {
+			return;
+		}
+		try {
+			INVOKE_CLEANER.invokeExact(buffer);
+		} catch (Throwable e) {
+			log.debug("Failed to free direct buffer", e);
+		}
+	}
+
+	/**
+	 * Find {@code Unsafe.invokeCleaner(ByteBuffer)}, available since JDK 9.
+	 */
+	private static MethodHandle findCleaner() {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			return MethodHandles.lookup()
+					.findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+					.bindTo(field.get(null));
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			log.debug("Direct buffers are freed by the garbage collector", e);
+			return null;
+		}
+	}
+}
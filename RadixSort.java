@@ -0,0 +1,89 @@
+package com.saviynt.pam.util;
+
+import java.util.Arrays;
+
+/**
+ * The {@link RadixSort} is a stable LSD radix sort of element indices for
+ * key columns whose values reduce to unsigned integers, see
+ * {@link SortKeyColumn.RadixColumn#radixKey}. Null keys are moved to the
+ * front or back in their original order, the other keys are sorted one byte
+ * per pass, skipping the bytes that are the same for all keys. The result is
+ * the same ordering as the comparison sort in O(N).
+ */
+final class RadixSort {
+
+	private static final int RADIX_BITS = 8;
+	private static final int RADIX = 1 << RADIX_BITS;
+	private static final int PASSES = Long.SIZE / RADIX_BITS;
+
+	private RadixSort() {
+	}
+
+	/**
+	 * Sort the indices 0..size-1 on the radix keys of the column.
+	 * 
+	 * @param column
+	 * @param size
+	 * @param scratch sorter providing the index and key arrays
+	 * @return sorted indices in the first size elements
+	 */
+	static int[] sort(final SortKeyColumn.RadixColumn column, int size, final Sorter scratch) {
+		int nullCount = column.nullCount();
+		int valueCount = size - nullCount;
+		int[] sorted = scratch.indices(size);
+		int[] indices = scratch.buffer(valueCount);
+		int nullIndex = column.isNullFirst() ? 0 : valueCount;
+		for (int i = 0, v = 0; i < size; i++) {
+			if (column.isNull(i)) {
+				sorted[nullIndex++] = i;
+			} else {
+				indices[v++] = i;
+			}
+		}
+		if (valueCount == 0) {
+			return sorted;
+		}
+
+		long[] keys = scratch.radixKeys(valueCount);
+		long[] keyBuffer = scratch.radixKeyBuffer(valueCount);
+		int[] indexBuffer = scratch.radixIndexBuffer(valueCount);
+		int[][] counts = scratch.radixCounts(PASSES, RADIX);
+		for (int key = 0; key < column.radixKeyCount(); key++) {
+			for (int pass = 0; pass < PASSES; pass++) {
+				Arrays.fill(counts[pass], 0);
+			}
+			for (int i = 0; i < valueCount; i++) {
+				long value = column.radixKey(indices[i], key);
+				keys[i] = value;
+				for (int pass = 0; pass < PASSES; pass++) {
+					counts[pass][(int) (value >>> (pass * RADIX_BITS)) & (RADIX - 1)]++;
+				}
+			}
+			for (int pass = 0; pass < PASSES; pass++) {
+				int[] count = counts[pass];
+				if (count[(int) (keys[0] >>> (pass * RADIX_BITS)) & (RADIX - 1)] == valueCount) {
+					continue;
+				}
+				for (int digit = 0, offset = 0; digit < RADIX; digit++) {
+					int c = count[digit];
+					count[digit] = offset;
+					offset += c;
+				}
+				for (int i = 0; i < valueCount; i++) {
+					long value = keys[i];
+					int target = count[(int) (value >>> (pass * RADIX_BITS)) & (RADIX - 1)]++;
+					keyBuffer[target] = value;
+					indexBuffer[target] = indices[i];
+				}
+				long[] swapKeys = keys;
+				keys = keyBuffer;
+				keyBuffer = swapKeys;
+				int[] swapIndices = indices;
+				indices = indexBuffer;
+				indexBuffer = swapIndices;
+			}
+		}
+		System.arraycopy(indices, 0, sorted, column.isNullFirst() ? nullCount : 0, valueCount);
+		return sorted;
+	}
+}
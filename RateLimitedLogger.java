@@ -0,0 +1,68 @@
+package com.saviynt.pam.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+
+/**
+ * The {@link RateLimitedLogger} logs at most one error per interval and
+ * counts the suppressed ones, so a burst of failing comparisons does not
+ * render and write a stack trace for every failure. The stack trace is only
+ * logged at debug level.
+ */
+final class RateLimitedLogger {
+
+	private static final long DEFAULT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+	private final Logger log;
+	private final long intervalNanos;
+	private final AtomicLong nextLogTime;
+	private final LongAdder suppressed = new LongAdder();
+
+	RateLimitedLogger(final Logger log) {
+		this(log, DEFAULT_INTERVAL_NANOS);
+	}
+
+	RateLimitedLogger(final Logger log, long intervalNanos) {
+		this.log = log;
+		this.intervalNanos = intervalNanos;
+		this.nextLogTime = new AtomicLong(System.nanoTime());
+	}
+
+	/**
+	 * Log the error unless one was already logged within the interval.
+	 * 
+	 * @param message
+	 * @param e
+	 */
+	void error(final String message, final Throwable e) {
+		long now = System.nanoTime();
+		long next = nextLogTime.get();
+		if (now - next >= 0 && nextLogTime.compareAndSet(next, now + intervalNanos)) {
+			log.error("{}: {} ({} similar errors suppressed)", message, e, suppressed.sumThenReset());
+			if (log.isDebugEnabled()) {
+				log.debug(message, e);
+			}
+		} else {
+			suppressed.increment();
+		}
+	}
+
+	/**
+	 * Log the error message unless one was already logged within the interval.
+	 * 
+	 * @param format
+	 * @param argument
+	 */
+	void error(final String format, final Object argument) {
+		long now = System.nanoTime();
+		long next = nextLogTime.get();
+		if (now - next >= 0 && nextLogTime.compareAndSet(next, now + intervalNanos)) {
+			log.error(format + " ({} similar errors suppressed)", argument, suppressed.sumThenReset());
+		} else {
+			suppressed.increment();
+		}
+	}
+}
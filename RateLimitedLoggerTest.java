@@ -0,0 +1,45 @@
+package com.saviynt.pam.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+public class RateLimitedLoggerTest {
+
+    @Test
+    @DisplayName("Positive: Message error reports and resets suppressed count")
+    void testSuppressedCount() throws Exception{
+        List<Object[]> errors = new ArrayList<>();
+        RateLimitedLogger errorLog = new RateLimitedLogger(logger(errors), TimeUnit.MILLISECONDS.toNanos(50));
+        //Sort
+        errorLog.error("Unsupported data type {}", "A");
+        errorLog.error("Unsupported data type {}", "B");
+        errorLog.error("Unsupported data type {}", "C");
+        Thread.sleep(60);
+        errorLog.error("Unsupported data type {}", "D");
+        Thread.sleep(60);
+        errorLog.error("Unsupported data type {}", "E");
+
+        //assert
+        Assertions.assertEquals(3, errors.size());
+        Assertions.assertEquals("Unsupported data type {} ({} similar errors suppressed)", errors.get(0)[0]);
+        Assertions.assertArrayEquals(new Object[] { "A", 0L }, Arrays.copyOfRange(errors.get(0), 1, 3));
+        Assertions.assertArrayEquals(new Object[] { "D", 2L }, Arrays.copyOfRange(errors.get(1), 1, 3));
+        Assertions.assertArrayEquals(new Object[] { "E", 0L }, Arrays.copyOfRange(errors.get(2), 1, 3));
+    }
+
+    private static Logger logger(final List<Object[]> errors) {
+        return (Logger) Proxy.newProxyInstance(Logger.class.getClassLoader(), new Class<?>[] { Logger.class },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("error")) {
+                        errors.add(args);
+                    }
+                    return method.getReturnType() == boolean.class ? false : null;
+                });
+    }
+}
@@ -0,0 +1,103 @@
+package com.saviynt.pam.util;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Sample bean sorted by the tests.
+ */
+class Session {
+
+    private Integer id;
+    private String name;
+    private Date startDate;
+    private Timestamp endDate;
+    private Long duration;
+    private Double timeOut;
+    private Float cost;
+    private boolean status;
+    private List<String> tags;
+
+    public Session(Integer id, String name, Date startDate, Timestamp endDate, Long duration, Double timeOut, Float cost) {
+        this.id = id;
+        this.name = name;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.duration = duration;
+        this.timeOut = timeOut;
+        this.cost = cost;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Date getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(Date startDate) {
+        this.startDate = startDate;
+    }
+
+    public Timestamp getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(Timestamp endDate) {
+        this.endDate = endDate;
+    }
+
+    public Long getDuration() {
+        return duration;
+    }
+
+    public void setDuration(Long duration) {
+        this.duration = duration;
+    }
+
+    public Double getTimeOut() {
+        return timeOut;
+    }
+
+    public void setTimeOut(Double timeOut) {
+        this.timeOut = timeOut;
+    }
+
+    public Float getCost() {
+        return cost;
+    }
+
+    public void setCost(Float cost) {
+        this.cost = cost;
+    }
+
+    public boolean getStatus() {
+        return status;
+    }
+
+    public void setStatus(boolean status) {
+        this.status = status;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+    }
+}
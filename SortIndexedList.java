@@ -0,0 +1,167 @@
+package com.saviynt.pam.util;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import com.saviynt.pam.enums.SortOrder;
+import com.saviynt.pam.exception.BadRequestException;
+
+/**
+ * The {@link SortIndexedList} is a list that caches one sort permutation per
+ * requested {@link SortSpec}, so switching between sort columns on the same
+ * result set only sorts each column once. A permutation is built with the
+ * {@link CommonComparator} key extraction sort on first request, dropped when
+ * the list is modified, and the least recently used permutations are evicted
+ * beyond {@code maxIndexes}. Not thread-safe.
+ */
+public class SortIndexedList<T> extends AbstractList<T> implements RandomAccess {
+
+	public static final int DEFAULT_MAX_INDEXES = 4;
+
+	private final List<T> elements;
+	private final Map<SortSpec, int[]> indexes;
+
+	public SortIndexedList(final Collection<? extends T> elements) {
+		this(elements, DEFAULT_MAX_INDEXES);
+	}
+
+	/**
+	 * @param elements
+	 * @param maxIndexes maximum number of cached permutations
+	 */
+	public SortIndexedList(final Collection<? extends T> elements, final int maxIndexes) {
+		if (maxIndexes < 1) {
+			throw new IllegalArgumentException("maxIndexes must be positive");
+		}
+		this.elements = new ArrayList<>(elements);
+		this.indexes = new LinkedHashMap<SortSpec, int[]>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<SortSpec, int[]> eldest) {
+				return size() > maxIndexes;
+			}
+		};
+	}
+
+	/**
+	 * Get the elements sorted on the field.
+	 * 
+	 * @param fieldName
+	 * @param sortOrder
+	 * @param isNullFirst
+	 * @return read-only view, invalid once this list is modified
+	 * 
+	 * @throws BadRequestException
+	 */
+	public List<T> sorted(final String fieldName, SortOrder sortOrder, boolean isNullFirst) {
+		return sorted(SortSpec.of(fieldName, sortOrder, isNullFirst));
+	}
+
+	/**
+	 * Get the elements sorted on the specification, with the same order as
+	 * {@link CommonComparator#sort(List, SortSpec)}.
+	 * 
+	 * @param spec
+	 * @return read-only view, invalid once this list is modified
+	 * 
+	 * @throws BadRequestException
+	 */
+	public List<T> sorted(final SortSpec spec) {
+		int[] permutation = indexes.get(spec);
+		if (permutation == null) {
+			permutation = buildIndex(spec);
+			indexes.put(spec, permutation);
+		}
+		return new SortedList(permutation);
+	}
+
+	/**
+	 * Drop all cached permutations, to be called when the sort fields of
+	 * elements are changed in place.
+	 */
+	public void invalidate() {
+		indexes.clear();
+		modCount++;
+	}
+
+	/**
+	 * Number of cached permutations.
+	 */
+	public int indexCount() {
+		return indexes.size();
+	}
+
+	private int[] buildIndex(final SortSpec spec) {
+		return CommonComparator.sortIndices(elements.toArray(), spec);
+	}
+
+	@Override
+	public T get(int index) {
+		return elements.get(index);
+	}
+
+	@Override
+	public int size() {
+		return elements.size();
+	}
+
+	@Override
+	public T set(int index, T element) {
+		T previous = elements.set(index, element);
+		invalidate();
+		return previous;
+	}
+
+	@Override
+	public void add(int index, T element) {
+		elements.add(index, element);
+		invalidate();
+	}
+
+	@Override
+	public T remove(int index) {
+		T removed = elements.remove(index);
+		invalidate();
+		return removed;
+	}
+
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		elements.subList(fromIndex, toIndex).clear();
+		invalidate();
+	}
+
+	/**
+	 * Read-only list of the elements in permutation order.
+	 */
+	private final class SortedList extends AbstractList<T> implements RandomAccess {
+
+		private final int[] permutation;
+		private final int expectedModCount = SortIndexedList.this.modCount;
+
+		SortedList(final int[] permutation) {
+			this.permutation = permutation;
+		}
+
+		@Override
+		public T get(int index) {
+			if (SortIndexedList.this.modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			return elements.get(permutation[index]);
+		}
+
+		@Override
+		public int size() {
+			return permutation.length;
+		}
+	}
+}
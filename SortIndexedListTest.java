@@ -0,0 +1,50 @@
+package com.saviynt.pam.util;
+
+import com.saviynt.pam.enums.SortOrder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+public class SortIndexedListTest {
+
+    private List<Session> sessions() {
+        Random random = new Random(3);
+        List<Session> list = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            list.add(new Session(i, random.nextInt(10) == 0 ? null : "s" + random.nextInt(40), new Date(random.nextInt(100) * 1000L),
+                    null, (long) random.nextInt(30), null, random.nextInt(10) == 0 ? null : random.nextInt(20) * 1.5f));
+        }
+        return list;
+    }
+
+    @Test
+    @DisplayName("Positive: Cached sort matches comparator order for every field")
+    void testSorted() throws Exception{
+        List<Session> source = sessions();
+        SortIndexedList<Session> indexed = new SortIndexedList<>(source, 2);
+        for (String field : List.of("name", "startDate", "duration", "cost", "name")) {
+            //Expected
+            List<Session> expected = new ArrayList<>(source);
+            expected.sort(new CommonComparator<>(field, SortOrder.desc, true));
+
+            //assert
+            Assertions.assertIterableEquals(expected, indexed.sorted(field, SortOrder.desc, true));
+            Assertions.assertTrue(indexed.indexCount() <= 2);
+        }
+    }
+
+    @Test
+    @DisplayName("Positive: Mutation invalidates cached sort")
+    void testInvalidate() throws Exception{
+        SortIndexedList<Session> indexed = new SortIndexedList<>(sessions());
+        List<Session> byDuration = indexed.sorted("duration", SortOrder.asc, false);
+        indexed.add(new Session(-1, "first", null, null, -5L, null, null));
+
+        //assert
+        Assertions.assertEquals(0, indexed.indexCount());
+        Assertions.assertThrows(ConcurrentModificationException.class, () -> byDuration.get(0));
+        Assertions.assertEquals(-1, indexed.sorted("duration", SortOrder.asc, false).get(0).getId());
+    }
+}
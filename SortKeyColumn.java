@@ -0,0 +1,615 @@
+package com.saviynt.pam.util;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@link SortKeyColumn} holds the sort key extracted from every element of
+ * a list, so that a sort compares keys by index instead of invoking the getter
+ * on each comparison. Numeric and temporal keys are stored unboxed in
+ * primitive arrays with the null keys tracked in a {@link BitSet}, string
+ * keys with a {@link StringCollation} are stored as their collation keys.
+ */
+abstract class SortKeyColumn {
+
+	/**
+	 * Create key column for the given field type and number of elements.
+	 * 
+	 * @param type declared type of the field
+	 * @param size
+	 * @param isAscendingOrder
+	 * @param isNullFirst
+	 * @return column
+	 */
+	static ValueColumn of(Class<?> type, int size, boolean isAscendingOrder, boolean isNullFirst) {
+		return of(type, size, isAscendingOrder, isNullFirst, null);
+	}
+
+	/**
+	 * Create key column for the given field type and number of elements, or
+	 * reuse the column when it is of the same kind, order and null position.
+	 * 
+	 * @param type declared type of the field
+	 * @param size
+	 * @param isAscendingOrder
+	 * @param isNullFirst
+	 * @param reuse column of a previous sort, may be null
+	 * @return column
+	 */
+	static ValueColumn of(Class<?> type, int size, boolean isAscendingOrder, boolean isNullFirst,
+			final ValueColumn reuse) {
+		Class<? extends ValueColumn> kind = ObjectColumn.class;
+		if (ValueComparators.isNaturalOrder(type)) {
+			if (type == Integer.class || type == int.class) {
+				kind = IntColumn.class;
+			} else if (type == Long.class || type == long.class) {
+				kind = LongColumn.class;
+			} else if (type == Double.class || type == double.class || type == Float.class || type == float.class) {
+				kind = DoubleColumn.class;
+			} else if (Date.class.isAssignableFrom(type)) {
+				kind = TemporalColumn.class;
+			}
+		}
+		if (reuse != null && reuse.getClass() == kind && reuse.order == (isAscendingOrder ? 1 : -1)
+				&& reuse.nullPos == (isNullFirst ? -1 : 1)) {
+			reuse.resize(size);
+			return reuse;
+		}
+		if (kind == IntColumn.class) {
+			return new IntColumn(size, isAscendingOrder, isNullFirst);
+		}
+		if (kind == LongColumn.class) {
+			return new LongColumn(size, isAscendingOrder, isNullFirst);
+		}
+		if (kind == DoubleColumn.class) {
+			return new DoubleColumn(size, isAscendingOrder, isNullFirst);
+		}
+		if (kind == TemporalColumn.class) {
+			return new TemporalColumn(size, isAscendingOrder, isNullFirst);
+		}
+		return new ObjectColumn(size, isAscendingOrder, isNullFirst);
+	}
+
+	/**
+	 * Get the column to radix sort when its keys reduce to unsigned integers.
+	 * 
+	 * @return column, or null when the column can only be compared
+	 */
+	RadixColumn radixColumn() {
+		return null;
+	}
+
+	/**
+	 * Called with the strategy {@link IndexSort} chose for this column.
+	 * 
+	 * @param strategy
+	 */
+	void sortedWith(final IndexSort.Strategy strategy) {
+	}
+
+	/**
+	 * Prepare the column for the keys of another list, growing its arrays
+	 * when the list is larger.
+	 * 
+	 * @param size
+	 */
+	abstract void resize(int size);
+
+	/**
+	 * Drop the references to the keys of the first size elements.
+	 * 
+	 * @param size
+	 */
+	void release(int size) {
+	}
+
+	/**
+	 * Extract the keys of all elements for the specification, one column per
+	 * key combined into a composite column when there are several.
+	 * 
+	 * @param elements
+	 * @param spec
+	 * @return column
+	 * 
+	 * @throws IllegalArgumentException if an element has no such property
+	 */
+	static SortKeyColumn extract(final Object[] elements, final SortSpec spec) {
+		List<SortSpec.Key> keys = spec.getKeys();
+		if (keys.size() == 1) {
+			return extract(elements, keys.get(0));
+		}
+		SortKeyColumn[] columns = new SortKeyColumn[keys.size()];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = extract(elements, keys.get(i));
+		}
+		return new CompositeColumn(columns);
+	}
+
+	/**
+	 * Extract the field value of every element into a column chosen from the
+	 * declared type of the field.
+	 * 
+	 * @param elements
+	 * @param key
+	 * @return column
+	 */
+	static ValueColumn extract(final Object[] elements, final SortSpec.Key key) {
+		return extract(elements, elements.length, key, null);
+	}
+
+	/**
+	 * Extract the field value of the first size elements, into the column of
+	 * a previous sort when it fits the field.
+	 * 
+	 * @param elements
+	 * @param size
+	 * @param key
+	 * @param reuse column of a previous sort, may be null
+	 * @return column
+	 */
+	static ValueColumn extract(final Object[] elements, int size, final SortSpec.Key key,
+			final ValueColumn reuse) {
+		Class<?> type = FieldAccessor.of(elements[0].getClass(), key.getFieldName()).getType();
+		ValueColumn column = extract(elements, size, key.getFieldName(),
+				of(type, size, key.isAscendingOrder(), key.isNullFirst(), reuse), type, key.getCollation());
+		if (column == null) {
+			column = extract(elements, size, key.getFieldName(),
+					of(Object.class, size, key.isAscendingOrder(), key.isNullFirst(), reuse), null,
+					key.getCollation());
+		}
+		return column;
+	}
+
+	/**
+	 * Extract the field value of the first size elements into the column.
+	 * 
+	 * @param elements
+	 * @param size
+	 * @param fieldName
+	 * @param column
+	 * @param type expected field type, null to accept any type
+	 * @param collation turning string values into their collation keys
+	 * @return column, or null when an element's class declares the field with another type
+	 */
+	private static ValueColumn extract(final Object[] elements, int size, final String fieldName,
+			final ValueColumn column, final Class<?> type, final StringCollation collation) {
+		FieldAccessor current = null;
+		for (int i = 0; i < size; i++) {
+			Object element = elements[i];
+			if (current == null || current.getBeanClass() != element.getClass()) {
+				current = FieldAccessor.of(element.getClass(), fieldName);
+				if (type != null && current.getType() != type) {
+					return null;
+				}
+			}
+			column.set(i, collation.key(current.get(element)));
+		}
+		return column;
+	}
+
+	/**
+	 * Compare the keys of two elements, with the order and null position applied.
+	 * 
+	 * @param i
+	 * @param j
+	 * @return value
+	 */
+	abstract int compare(int i, int j);
+
+	/**
+	 * Base of the columns holding the extracted keys of one field.
+	 */
+	abstract static class ValueColumn extends SortKeyColumn {
+
+		protected final int order;
+		protected final int nullPos;
+
+		protected ValueColumn(boolean isAscendingOrder, boolean isNullFirst) {
+			this.order = isAscendingOrder ? 1 : -1;
+			this.nullPos = isNullFirst ? -1 : 1;
+		}
+
+		/**
+		 * Store the extracted key of the element at the index.
+		 * 
+		 * @param index
+		 * @param value
+		 */
+		abstract void set(int index, Object value);
+	}
+
+	/**
+	 * Key column holding the field values as objects.
+	 */
+	static final class ObjectColumn extends ValueColumn {
+
+		private Object[] keys;
+
+		ObjectColumn(int size, boolean isAscendingOrder, boolean isNullFirst) {
+			super(isAscendingOrder, isNullFirst);
+			this.keys = new Object[size];
+		}
+
+		@Override
+		void resize(int size) {
+			if (keys.length < size) {
+				keys = new Object[size];
+			}
+		}
+
+		@Override
+		void release(int size) {
+			Arrays.fill(keys, 0, Math.min(size, keys.length), null);
+		}
+
+		@Override
+		void set(int index, Object value) {
+			keys[index] = value;
+		}
+
+		@Override
+		int compare(int i, int j) {
+			return CommonComparator.compareKeys(keys[i], keys[j], order, nullPos);
+		}
+	}
+
+	/**
+	 * Column comparing on several key columns in order, stopping at the first
+	 * one that differs.
+	 */
+	static final class CompositeColumn extends SortKeyColumn {
+
+		private final SortKeyColumn[] columns;
+
+		/**
+		 * @param columns key columns, read on every comparison so a column
+		 *                replaced in the array is compared from then on
+		 */
+		CompositeColumn(final SortKeyColumn[] columns) {
+			this.columns = columns;
+		}
+
+		@Override
+		void resize(int size) {
+			for (SortKeyColumn column : columns) {
+				column.resize(size);
+			}
+		}
+
+		@Override
+		void release(int size) {
+			for (SortKeyColumn column : columns) {
+				column.release(size);
+			}
+		}
+
+		@Override
+		int compare(int i, int j) {
+			for (SortKeyColumn column : columns) {
+				int value = column.compare(i, j);
+				if (value != 0) {
+					return value;
+				}
+			}
+			return 0;
+		}
+	}
+
+	/**
+	 * Column counting the comparisons of another column for the metrics.
+	 */
+	static final class CountingColumn extends SortKeyColumn {
+
+		private final SortKeyColumn column;
+		private final LongAdder compares = new LongAdder();
+		private IndexSort.Strategy strategy;
+
+		CountingColumn(final SortKeyColumn column) {
+			this.column = column;
+		}
+
+		@Override
+		void resize(int size) {
+			column.resize(size);
+		}
+
+		@Override
+		void release(int size) {
+			column.release(size);
+		}
+
+		@Override
+		int compare(int i, int j) {
+			compares.increment();
+			return column.compare(i, j);
+		}
+
+		long getCompareCount() {
+			return compares.sum();
+		}
+
+		IndexSort.Strategy getStrategy() {
+			return strategy;
+		}
+
+		@Override
+		RadixColumn radixColumn() {
+			return column.radixColumn();
+		}
+
+		@Override
+		void sortedWith(final IndexSort.Strategy strategy) {
+			this.strategy = strategy;
+		}
+	}
+
+	/**
+	 * Base of the unboxed key columns, null keys are kept in a bitset.
+	 */
+	abstract static class PrimitiveColumn extends ValueColumn {
+
+		protected final BitSet nulls;
+
+		protected PrimitiveColumn(int size, boolean isAscendingOrder, boolean isNullFirst) {
+			super(isAscendingOrder, isNullFirst);
+			this.nulls = new BitSet(size);
+		}
+
+		@Override
+		final void resize(int size) {
+			nulls.clear();
+			grow(size);
+		}
+
+		@Override
+		final void set(int index, Object value) {
+			if (value == null) {
+				nulls.set(index);
+			} else {
+				setValue(index, value);
+			}
+		}
+
+		@Override
+		final int compare(int i, int j) {
+			boolean null1 = nulls.get(i);
+			boolean null2 = nulls.get(j);
+			if (null1 || null2) {
+				if (null1 == null2) {
+					return 0;
+				}
+				return null1 ? nullPos : -nullPos;
+			}
+			return compareValue(i, j) * order;
+		}
+
+		/**
+		 * Grow the key arrays to hold at least the size.
+		 */
+		abstract void grow(int size);
+
+		abstract void setValue(int index, Object value);
+
+		abstract int compareValue(int i, int j);
+	}
+
+	/**
+	 * Base of the unboxed key columns whose values reduce to unsigned
+	 * integers, sorted by {@link RadixSort}.
+	 */
+	abstract static class RadixColumn extends PrimitiveColumn {
+
+		protected RadixColumn(int size, boolean isAscendingOrder, boolean isNullFirst) {
+			super(size, isAscendingOrder, isNullFirst);
+		}
+
+		@Override
+		final RadixColumn radixColumn() {
+			return this;
+		}
+
+		boolean isNull(int index) {
+			return nulls.get(index);
+		}
+
+		int nullCount() {
+			return nulls.cardinality();
+		}
+
+		boolean isNullFirst() {
+			return nullPos < 0;
+		}
+
+		/**
+		 * Number of radix keys of a value.
+		 */
+		abstract int radixKeyCount();
+
+		/**
+		 * Get the key of a non-null value as an unsigned number whose order is the
+		 * sort order, including the direction. Key 0 is the least significant.
+		 * 
+		 * @param index
+		 * @param key
+		 * @return unsigned key
+		 */
+		abstract long radixKey(int index, int key);
+	}
+
+	/**
+	 * Key column for {@link Integer} fields.
+	 */
+	static final class IntColumn extends RadixColumn {
+
+		private int[] keys;
+
+		IntColumn(int size, boolean isAscendingOrder, boolean isNullFirst) {
+			super(size, isAscendingOrder, isNullFirst);
+			this.keys = new int[size];
+		}
+
+		@Override
+		void grow(int size) {
+			if (keys.length < size) {
+				keys = new int[size];
+			}
+		}
+
+		@Override
+		void setValue(int index, Object value) {
+			keys[index] = (Integer) value;
+		}
+
+		@Override
+		int compareValue(int i, int j) {
+			return Integer.compare(keys[i], keys[j]);
+		}
+
+		@Override
+		int radixKeyCount() {
+			return 1;
+		}
+
+		@Override
+		long radixKey(int index, int key) {
+			int bits = keys[index] ^ Integer.MIN_VALUE;
+			return (order > 0 ? bits : ~bits) & 0xFFFFFFFFL;
+		}
+	}
+
+	/**
+	 * Key column for {@link Long} fields.
+	 */
+	static final class LongColumn extends RadixColumn {
+
+		private long[] keys;
+
+		LongColumn(int size, boolean isAscendingOrder, boolean isNullFirst) {
+			super(size, isAscendingOrder, isNullFirst);
+			this.keys = new long[size];
+		}
+
+		@Override
+		void grow(int size) {
+			if (keys.length < size) {
+				keys = new long[size];
+			}
+		}
+
+		@Override
+		void setValue(int index, Object value) {
+			keys[index] = (Long) value;
+		}
+
+		@Override
+		int compareValue(int i, int j) {
+			return Long.compare(keys[i], keys[j]);
+		}
+
+		@Override
+		int radixKeyCount() {
+			return 1;
+		}
+
+		@Override
+		long radixKey(int index, int key) {
+			long bits = keys[index] ^ Long.MIN_VALUE;
+			return order > 0 ? bits : ~bits;
+		}
+	}
+
+	/**
+	 * Key column for {@link Double} and {@link Float} fields, a float widens to
+	 * double without changing {@code Float.compare} ordering.
+	 */
+	static final class DoubleColumn extends PrimitiveColumn {
+
+		private double[] keys;
+
+		DoubleColumn(int size, boolean isAscendingOrder, boolean isNullFirst) {
+			super(size, isAscendingOrder, isNullFirst);
+			this.keys = new double[size];
+		}
+
+		@Override
+		void grow(int size) {
+			if (keys.length < size) {
+				keys = new double[size];
+			}
+		}
+
+		@Override
+		void setValue(int index, Object value) {
+			keys[index] = ((Number) value).doubleValue();
+		}
+
+		@Override
+		int compareValue(int i, int j) {
+			return Double.compare(keys[i], keys[j]);
+		}
+	}
+
+	/**
+	 * Key column for {@link Date} and {@link Timestamp} fields, stored as epoch
+	 * millis plus the nanos of the second so that timestamps keep their
+	 * sub-millisecond ordering.
+	 */
+	static final class TemporalColumn extends RadixColumn {
+
+		private long[] millis;
+		private int[] nanos;
+		private boolean hasSubMillis;
+
+		TemporalColumn(int size, boolean isAscendingOrder, boolean isNullFirst) {
+			super(size, isAscendingOrder, isNullFirst);
+			this.millis = new long[size];
+			this.nanos = new int[size];
+		}
+
+		@Override
+		void grow(int size) {
+			if (millis.length < size) {
+				millis = new long[size];
+				nanos = new int[size];
+			}
+			hasSubMillis = false;
+		}
+
+		@Override
+		void setValue(int index, Object value) {
+			long time = ((Date) value).getTime();
+			millis[index] = time;
+			nanos[index] = value instanceof Timestamp ? ((Timestamp) value).getNanos()
+					: (int) Math.floorMod(time, 1000L) * 1_000_000;
+			hasSubMillis |= nanos[index] % 1_000_000 != 0;
+		}
+
+		@Override
+		int compareValue(int i, int j) {
+			int value = Long.compare(millis[i], millis[j]);
+			return value != 0 ? value : Integer.compare(nanos[i], nanos[j]);
+		}
+
+		/**
+		 * Nanos only need a radix key of their own when some timestamp has a
+		 * sub-millisecond part, otherwise they follow from the millis.
+		 */
+		@Override
+		int radixKeyCount() {
+			return hasSubMillis ? 2 : 1;
+		}
+
+		@Override
+		long radixKey(int index, int key) {
+			if (hasSubMillis && key == 0) {
+				return (order > 0 ? nanos[index] : ~nanos[index]) & 0xFFFFFFFFL;
+			}
+			long bits = millis[index] ^ Long.MIN_VALUE;
+			return order > 0 ? bits : ~bits;
+		}
+	}
+}
@@ -0,0 +1,289 @@
+package com.saviynt.pam.util;
+
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.saviynt.pam.exception.BadRequestException;
+
+/**
+ * The {@link SortKeyEncoder} encodes the keys of a {@link SortSpec} into one
+ * order-preserving byte array per element, such that comparing two arrays
+ * with {@link #compare} (unsigned lexicographic) gives the same order as the
+ * {@link SortSpec#comparator()} of the specification. Keys can then be
+ * sorted, stored off-heap or spilled to disk and merged without decoding.
+ * <p>
+ * Every key starts with a null marker, {@code 0x00} for null and
+ * {@code 0x01} for a value when nulls come first, {@code 0x01} for a value and
+ * {@code 0x02} for null otherwise. The value follows, with all of its bytes
+ * inverted for descending keys:
+ * <ul>
+ * <li>Integer, Long: big-endian with the sign bit flipped</li>
+ * <li>Float, Double: IEEE bits, all bits flipped for negative numbers and the
+ * sign bit flipped otherwise, NaN canonical</li>
+ * <li>Date, Timestamp: epoch millis as a Long then the nanos of the second as
+ * an Integer, so a Date and a Timestamp of the same instant get the same key</li>
+ * <li>Boolean: one byte, enum: ordinal as an Integer, UUID: both halves as
+ * Longs, Instant: epoch seconds then nanos, LocalDate: epoch day,
+ * LocalDateTime: epoch day then nano of day</li>
+ * <li>String: big-endian UTF-16 code units, each {@code 0x00} byte escaped
+ * as {@code 0x00 0xFF}, terminated by {@code 0x00 0x00}; collated strings
+ * encode their collation key bytes the same way</li>
+ * </ul>
+ * Other types, and types with a strategy registered in
+ * {@link ValueComparators}, cannot be encoded. Instances are thread-safe.
+ */
+public final class SortKeyEncoder<T> {
+
+	private static final Logger log = LoggerFactory.getLogger(SortKeyEncoder.class);
+	private static final RateLimitedLogger errorLog = new RateLimitedLogger(log);
+
+	private static final int NULL_FIRST = 0x00;
+	private static final int VALUE = 0x01;
+	private static final int NULL_LAST = 0x02;
+	private static final int ESCAPE = 0xFF;
+
+	private final SortSpec spec;
+	private final CompiledComparator<T> comparator;
+	private final boolean[] ascending;
+	private final boolean[] nullFirst;
+
+	/**
+	 * @param spec
+	 */
+	public SortKeyEncoder(final SortSpec spec) {
+		this.spec = spec;
+		this.comparator = new CompiledComparator<>(spec, null);
+		List<SortSpec.Key> keys = spec.getKeys();
+		this.ascending = new boolean[keys.size()];
+		this.nullFirst = new boolean[keys.size()];
+		for (int i = 0; i < ascending.length; i++) {
+			ascending[i] = keys.get(i).isAscendingOrder();
+			nullFirst[i] = keys.get(i).isNullFirst();
+		}
+	}
+
+	/**
+	 * Encode the sort key of the element.
+	 *
+	 * @param element
+	 * @return key
+	 *
+	 * @throws BadRequestException if the element has no such property or an
+	 *                             unsupported value type
+	 */
+	public byte[] encode(final T element) {
+		try {
+			KeyBuffer buffer = new KeyBuffer();
+			encode(element, new Object[keyCount()], buffer);
+			return buffer.toByteArray();
+		} catch (SecurityException | IllegalArgumentException e) {
+			errorLog.error("Invalid sort column " + spec, e);
+			throw new BadRequestException("Invalid sort column");
+		}
+	}
+
+	/**
+	 * Number of keys in the specification.
+	 */
+	int keyCount() {
+		return ascending.length;
+	}
+
+	/**
+	 * Encode the sort key of the element into the buffer, replacing its
+	 * content, without allocating the key array.
+	 *
+	 * @param element
+	 * @param values array of {@link #keyCount()} length receiving the values
+	 * @param buffer
+	 *
+	 * @throws IllegalArgumentException if the element has no such property or
+	 *                                  an unsupported value type
+	 */
+	void encode(final T element, final Object[] values, final KeyBuffer buffer) {
+		comparator.extract(element, values);
+		buffer.reset();
+		for (int i = 0; i < values.length; i++) {
+			encode(values[i], ascending[i], nullFirst[i], buffer);
+			values[i] = null;
+		}
+	}
+
+	/**
+	 * Compare two encoded keys.
+	 *
+	 * @param key1
+	 * @param key2
+	 * @return value
+	 */
+	public static int compare(final byte[] key1, final byte[] key2) {
+		return Arrays.compareUnsigned(key1, key2);
+	}
+
+	/**
+	 * Compare two encoded keys held in buffers, from their positions to their
+	 * limits.
+	 *
+	 * @param key1
+	 * @param key2
+	 * @return value
+	 */
+	public static int compare(final ByteBuffer key1, final ByteBuffer key2) {
+		int index = key1.mismatch(key2);
+		if (index < 0) {
+			return 0;
+		}
+		if (index == key1.remaining() || index == key2.remaining()) {
+			return key1.remaining() - key2.remaining();
+		}
+		return Byte.toUnsignedInt(key1.get(key1.position() + index))
+				- Byte.toUnsignedInt(key2.get(key2.position() + index));
+	}
+
+	/**
+	 * Encode one field value.
+	 *
+	 * @param value extracted value, null or a supported type
+	 * @param isAscendingOrder
+	 * @param isNullFirst
+	 * @return key
+	 *
+	 * @throws IllegalArgumentException if the value type is not supported
+	 */
+	static byte[] encode(final Object value, boolean isAscendingOrder, boolean isNullFirst) {
+		KeyBuffer buffer = new KeyBuffer();
+		encode(value, isAscendingOrder, isNullFirst, buffer);
+		return buffer.toByteArray();
+	}
+
+	private static void encode(final Object value, boolean isAscendingOrder, boolean isNullFirst,
+			final KeyBuffer buffer) {
+		if (value == null) {
+			buffer.put(isNullFirst ? NULL_FIRST : NULL_LAST);
+			return;
+		}
+		buffer.put(VALUE);
+		int start = buffer.length;
+		if (!ValueComparators.isNaturalOrder(value.getClass())) {
+			throw new IllegalArgumentException("Unsupported data type " + value.getClass().getName());
+		}
+		if (value instanceof String) {
+			String text = (String) value;
+			for (int i = 0; i < text.length(); i++) {
+				char c = text.charAt(i);
+				putEscaped(buffer, c >>> 8);
+				putEscaped(buffer, c & 0xFF);
+			}
+			buffer.put(0x00);
+			buffer.put(0x00);
+		} else if (value instanceof Integer) {
+			buffer.putInt((Integer) value ^ Integer.MIN_VALUE);
+		} else if (value instanceof Long) {
+			buffer.putLong((Long) value ^ Long.MIN_VALUE);
+		} else if (value instanceof Float) {
+			int bits = Float.floatToIntBits((Float) value);
+			buffer.putInt(bits < 0 ? ~bits : bits ^ Integer.MIN_VALUE);
+		} else if (value instanceof Double) {
+			long bits = Double.doubleToLongBits((Double) value);
+			buffer.putLong(bits < 0 ? ~bits : bits ^ Long.MIN_VALUE);
+		} else if (value instanceof Date) {
+			long time = ((Date) value).getTime();
+			buffer.putLong(time ^ Long.MIN_VALUE);
+			buffer.putInt(value instanceof Timestamp ? ((Timestamp) value).getNanos()
+					: (int) Math.floorMod(time, 1000L) * 1_000_000);
+		} else if (value instanceof Boolean) {
+			buffer.put((Boolean) value ? 1 : 0);
+		} else if (value instanceof Enum) {
+			buffer.putInt(((Enum<?>) value).ordinal());
+		} else if (value instanceof UUID) {
+			buffer.putLong(((UUID) value).getMostSignificantBits() ^ Long.MIN_VALUE);
+			buffer.putLong(((UUID) value).getLeastSignificantBits() ^ Long.MIN_VALUE);
+		} else if (value instanceof Instant) {
+			buffer.putLong(((Instant) value).getEpochSecond() ^ Long.MIN_VALUE);
+			buffer.putInt(((Instant) value).getNano());
+		} else if (value instanceof LocalDate) {
+			buffer.putLong(((LocalDate) value).toEpochDay() ^ Long.MIN_VALUE);
+		} else if (value instanceof LocalDateTime) {
+			buffer.putLong(((LocalDateTime) value).toLocalDate().toEpochDay() ^ Long.MIN_VALUE);
+			buffer.putLong(((LocalDateTime) value).toLocalTime().toNanoOfDay());
+		} else if (value instanceof StringCollation.CollatedKey) {
+			for (byte b : ((StringCollation.CollatedKey) value).getBytes()) {
+				putEscaped(buffer, b & 0xFF);
+			}
+			buffer.put(0x00);
+			buffer.put(0x00);
+		} else {
+			throw new IllegalArgumentException("Unsupported data type " + value.getClass().getName());
+		}
+		if (!isAscendingOrder) {
+			buffer.invert(start);
+		}
+	}
+
+	private static void putEscaped(final KeyBuffer buffer, int b) {
+		buffer.put(b);
+		if (b == 0x00) {
+			buffer.put(ESCAPE);
+		}
+	}
+
+	/**
+	 * Growable byte array the keys are encoded into.
+	 */
+	static final class KeyBuffer {
+
+		private byte[] bytes = new byte[32];
+		private int length;
+
+		void put(int b) {
+			if (length == bytes.length) {
+				bytes = Arrays.copyOf(bytes, length * 2);
+			}
+			bytes[length++] = (byte) b;
+		}
+
+		void putInt(int value) {
+			for (int shift = 24; shift >= 0; shift -= 8) {
+				put(value >>> shift);
+			}
+		}
+
+		void putLong(long value) {
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				put((int) (value >>> shift));
+			}
+		}
+
+		void invert(int from) {
+			for (int i = from; i < length; i++) {
+				bytes[i] = (byte) ~bytes[i];
+			}
+		}
+
+		void reset() {
+			length = 0;
+		}
+
+		int length() {
+			return length;
+		}
+
+		void writeTo(final ByteBuffer target) {
+			target.put(bytes, 0, length);
+		}
+
+		byte[] toByteArray() {
+			return Arrays.copyOf(bytes, length);
+		}
+	}
+}
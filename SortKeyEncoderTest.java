@@ -0,0 +1,91 @@
+package com.saviynt.pam.util;
+
+import com.saviynt.pam.enums.SortOrder;
+import com.saviynt.pam.exception.BadRequestException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.util.*;
+
+public class SortKeyEncoderTest {
+
+    private List<Session> list;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Random random = new Random(5);
+        list = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            long time = 1577836800000L + random.nextInt(100) * 999L - 50_000L;
+            Timestamp endDate = new Timestamp(time);
+            endDate.setNanos(endDate.getNanos() + random.nextInt(3) * 100);
+            list.add(new Session(nullable(random, random.nextInt(41) - 20),
+                    nullable(random, random.nextInt(3) == 0 ? "s\u0000" + random.nextInt(3) : "s" + random.nextInt(30)),
+                    nullable(random, new Date(time)), nullable(random, endDate),
+                    nullable(random, random.nextLong() % 1000),
+                    nullable(random, random.nextInt(10) == 0 ? Double.NaN : random.nextInt(20) / 3.0 - 3),
+                    nullable(random, random.nextInt(10) == 0 ? -0f : random.nextInt(20) - 10f)));
+        }
+    }
+
+    private static <V> V nullable(Random random, V value) {
+        return random.nextInt(5) == 0 ? null : value;
+    }
+
+    @Test
+    @DisplayName("Positive: Sort on encoded keys matches comparator order")
+    void testEncodedKeyOrder() throws Exception{
+        for (String field : new String[] { "id", "name", "startDate", "endDate", "duration", "timeOut", "cost" }) {
+            for (SortOrder sortOrder : SortOrder.values()) {
+                for (boolean isNullFirst : new boolean[] { true, false }) {
+                    CommonComparator<Session> comparator = new CommonComparator<>(field, sortOrder, isNullFirst);
+                    //Expected
+                    List<Session> expected = new ArrayList<>(list);
+                    Collections.sort(expected,comparator);
+                    //Sort
+                    List<Session> actual = new ArrayList<>(list);
+                    actual.sort(Comparator.comparing(comparator::sortKey, SortKeyEncoder::compare));
+
+                    //assert
+                    Assertions.assertIterableEquals(expected,actual,field + " " + sortOrder + " " + isNullFirst);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Positive: Multi-key encoded keys match compiled comparator")
+    void testMultiKeyEncoding() throws Exception{
+        SortSpec spec = SortSpec.of("name",SortOrder.desc,true)
+                .then("endDate",SortOrder.asc,false)
+                .then("cost",SortOrder.desc,true);
+        SortKeyEncoder<Session> encoder = new SortKeyEncoder<>(spec);
+        //Expected
+        List<Session> expected = new ArrayList<>(list);
+        expected.sort(spec.comparator(Session.class));
+        //Sort
+        List<Session> actual = new ArrayList<>(list);
+        actual.sort(Comparator.comparing(encoder::encode, SortKeyEncoder::compare));
+        List<Session> buffered = new ArrayList<>(list);
+        buffered.sort(Comparator.comparing(s -> ByteBuffer.wrap(encoder.encode(s)), SortKeyEncoder::compare));
+
+        //assert
+        Assertions.assertIterableEquals(expected,actual);
+        Assertions.assertIterableEquals(expected,buffered);
+    }
+
+    @Test
+    @DisplayName("Negative: Encode element by unsupported data type")
+    void testUnsupportedDatatype() throws Exception{
+        SortKeyEncoder<Session> encoder = new SortKeyEncoder<>(SortSpec.of("tags",SortOrder.asc,false));
+
+        //assert
+        Assertions.assertThrows(BadRequestException.class,()->{
+            encoder.encode(list.get(0));
+        });
+    }
+}
@@ -0,0 +1,347 @@
+package com.saviynt.pam.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The {@link SortMetrics} collects usage of the comparator and sort utilities
+ * per (class, sort fields): sort, element, compare and error counts, how
+ * often the keys were found presorted, key extraction time and a latency
+ * histogram of the sorts. Collection is off by
+ * default and costs a single volatile read per sort when disabled. Metrics
+ * are exposed through {@link Listener}s and the {@link SortMetricsMXBean}.
+ * <p>
+ * Sort fields come from requests, so the keys are bounded: sorts are only
+ * recorded once their fields were read successfully, errors on fields that
+ * were never sorted are counted under {@value #INVALID_FIELDS} of the class,
+ * and past {@value #MAX_KEYS} keys new ones are counted under
+ * {@value #OTHER_FIELDS} of the class.
+ */
+public final class SortMetrics implements SortMetricsMXBean {
+
+	public static final String OBJECT_NAME = "com.saviynt.pam.util:type=SortMetrics";
+
+	/**
+	 * Sort fields of the errors on fields that were never sorted.
+	 */
+	public static final String INVALID_FIELDS = "<invalid>";
+
+	/**
+	 * Sort fields of the statistics recorded once the map holds
+	 * {@link #MAX_KEYS} keys.
+	 */
+	public static final String OTHER_FIELDS = "<other>";
+
+	static final int MAX_KEYS = 1024;
+
+	private static final SortMetrics INSTANCE = new SortMetrics();
+
+	private final ConcurrentMap<String, FieldStats> stats = new ConcurrentHashMap<>();
+	private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+	private volatile boolean enabled;
+
+	private SortMetrics() {
+	}
+
+	public static SortMetrics getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Receives every recorded sort and error.
+	 */
+	public interface Listener {
+
+		void onSort(String type, String fields, int elements, long compares, long extractionNanos, long sortNanos);
+
+		default void onError(String type, String fields) {
+		}
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public void addListener(final Listener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(final Listener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Register the metrics with the platform MBean server.
+	 * 
+	 * @throws JMException
+	 */
+	public void registerMBean() throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(OBJECT_NAME);
+		if (!server.isRegistered(name)) {
+			server.registerMBean(this, name);
+		}
+	}
+
+	/**
+	 * Get the statistics of the class and sort fields.
+	 * 
+	 * @param type
+	 * @param fields
+	 * @return stats
+	 */
+	public FieldStats get(final Class<?> type, final String fields) {
+		String key = key(type, fields);
+		FieldStats fieldStats = stats.get(key);
+		if (fieldStats == null) {
+			if (stats.size() >= MAX_KEYS) {
+				key = key(type, OTHER_FIELDS);
+			}
+			fieldStats = stats.computeIfAbsent(key, k -> new FieldStats());
+		}
+		return fieldStats;
+	}
+
+	private static String key(final Class<?> type, final String fields) {
+		return (type == null ? "unknown" : type.getName()) + '#' + fields;
+	}
+
+	void recordSort(final Class<?> type, final String fields, int elements, long compares, long extractionNanos,
+			long sortNanos) {
+		FieldStats fieldStats = get(type, fields);
+		fieldStats.sorts.increment();
+		fieldStats.elements.add(elements);
+		fieldStats.compares.add(compares);
+		fieldStats.extractionNanos.add(extractionNanos);
+		fieldStats.sortTime.record(extractionNanos + sortNanos);
+		for (Listener listener : listeners) {
+			listener.onSort(type.getName(), fields, elements, compares, extractionNanos, sortNanos);
+		}
+	}
+
+	/**
+	 * Record how the keys were sorted when the scan found them presorted.
+	 */
+	void recordStrategy(final Class<?> type, final String fields, final IndexSort.Strategy strategy) {
+		if (strategy == null) {
+			return;
+		}
+		FieldStats fieldStats = get(type, fields);
+		switch (strategy) {
+		case PRESORTED:
+			fieldStats.presorted.increment();
+			break;
+		case REVERSED:
+			fieldStats.reversed.increment();
+			break;
+		case RUN_MERGE:
+			fieldStats.runMerged.increment();
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Record a failed sort, under the fields when they were sorted before and
+	 * otherwise under {@link #INVALID_FIELDS}.
+	 */
+	void recordError(final Class<?> type, final String fields) {
+		String recorded = stats.containsKey(key(type, fields)) ? fields : INVALID_FIELDS;
+		get(type, recorded).errors.increment();
+		for (Listener listener : listeners) {
+			listener.onError(type == null ? "unknown" : type.getName(), recorded);
+		}
+	}
+
+	@Override
+	public Map<String, Long> getSortCounts() {
+		return snapshot(s -> s.sorts.sum());
+	}
+
+	@Override
+	public Map<String, Long> getElementCounts() {
+		return snapshot(s -> s.elements.sum());
+	}
+
+	@Override
+	public Map<String, Long> getCompareCounts() {
+		return snapshot(s -> s.compares.sum());
+	}
+
+	@Override
+	public Map<String, Long> getErrorCounts() {
+		return snapshot(s -> s.errors.sum());
+	}
+
+	@Override
+	public Map<String, Long> getPresortedCounts() {
+		return snapshot(s -> s.presorted.sum());
+	}
+
+	@Override
+	public Map<String, Long> getReversedCounts() {
+		return snapshot(s -> s.reversed.sum());
+	}
+
+	@Override
+	public Map<String, Long> getRunMergedCounts() {
+		return snapshot(s -> s.runMerged.sum());
+	}
+
+	@Override
+	public Map<String, Long> getExtractionTimeNanos() {
+		return snapshot(s -> s.extractionNanos.sum());
+	}
+
+	@Override
+	public Map<String, Long> getSortTimeP50Nanos() {
+		return snapshot(s -> s.sortTime.percentile(0.5));
+	}
+
+	@Override
+	public Map<String, Long> getSortTimeP99Nanos() {
+		return snapshot(s -> s.sortTime.percentile(0.99));
+	}
+
+	@Override
+	public void reset() {
+		stats.clear();
+	}
+
+	private Map<String, Long> snapshot(final ToLongFunction<FieldStats> value) {
+		Map<String, Long> snapshot = new TreeMap<>();
+		stats.forEach((key, fieldStats) -> snapshot.put(key, value.applyAsLong(fieldStats)));
+		return snapshot;
+	}
+
+	/**
+	 * Counters of one (class, sort fields) pair.
+	 */
+	public static final class FieldStats {
+
+		private final LongAdder sorts = new LongAdder();
+		private final LongAdder elements = new LongAdder();
+		private final LongAdder compares = new LongAdder();
+		private final LongAdder errors = new LongAdder();
+		private final LongAdder presorted = new LongAdder();
+		private final LongAdder reversed = new LongAdder();
+		private final LongAdder runMerged = new LongAdder();
+		private final LongAdder extractionNanos = new LongAdder();
+		private final LatencyHistogram sortTime = new LatencyHistogram();
+
+		void recordCompare() {
+			compares.increment();
+		}
+
+		public long getSortCount() {
+			return sorts.sum();
+		}
+
+		public long getElementCount() {
+			return elements.sum();
+		}
+
+		public long getCompareCount() {
+			return compares.sum();
+		}
+
+		public long getErrorCount() {
+			return errors.sum();
+		}
+
+		/**
+		 * Sorts whose keys were already in order.
+		 */
+		public long getPresortedCount() {
+			return presorted.sum();
+		}
+
+		/**
+		 * Sorts whose keys were in strictly reverse order.
+		 */
+		public long getReversedCount() {
+			return reversed.sum();
+		}
+
+		/**
+		 * Sorts whose keys were merged from a few ascending runs.
+		 */
+		public long getRunMergedCount() {
+			return runMerged.sum();
+		}
+
+		public long getExtractionTimeNanos() {
+			return extractionNanos.sum();
+		}
+
+		/**
+		 * Get the sort time below which the given fraction of sorts completed.
+		 * 
+		 * @param fraction between 0 and 1
+		 * @return upper bound in nanoseconds
+		 */
+		public long getSortTimePercentileNanos(double fraction) {
+			return sortTime.percentile(fraction);
+		}
+	}
+
+	/**
+	 * Histogram with one bucket per power of two nanoseconds, percentiles are
+	 * reported as the upper bound of their bucket.
+	 */
+	static final class LatencyHistogram {
+
+		private static final int BUCKETS = 64;
+
+		private final LongAdder[] counts = new LongAdder[BUCKETS];
+
+		LatencyHistogram() {
+			for (int i = 0; i < BUCKETS; i++) {
+				counts[i] = new LongAdder();
+			}
+		}
+
+		void record(long nanos) {
+			counts[BUCKETS - Long.numberOfLeadingZeros(Math.max(nanos, 1L))].increment();
+		}
+
+		long percentile(double fraction) {
+			long[] snapshot = new long[BUCKETS];
+			long total = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				snapshot[i] = counts[i].sum();
+				total += snapshot[i];
+			}
+			if (total == 0) {
+				return 0;
+			}
+			long rank = (long) Math.ceil(fraction * total);
+			long seen = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				seen += snapshot[i];
+				if (seen >= Math.max(rank, 1)) {
+					return (1L << i) - 1;
+				}
+			}
+			return Long.MAX_VALUE;
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package com.saviynt.pam.util;
+
+import java.util.Map;
+
+/**
+ * JMX view of the {@link SortMetrics}, every map is keyed by
+ * {@code <class name>#<sort fields>}.
+ */
+public interface SortMetricsMXBean {
+
+	boolean isEnabled();
+
+	void setEnabled(boolean enabled);
+
+	Map<String, Long> getSortCounts();
+
+	Map<String, Long> getElementCounts();
+
+	Map<String, Long> getCompareCounts();
+
+	Map<String, Long> getErrorCounts();
+
+	Map<String, Long> getPresortedCounts();
+
+	Map<String, Long> getReversedCounts();
+
+	Map<String, Long> getRunMergedCounts();
+
+	Map<String, Long> getExtractionTimeNanos();
+
+	Map<String, Long> getSortTimeP50Nanos();
+
+	Map<String, Long> getSortTimeP99Nanos();
+
+	void reset();
+}
@@ -0,0 +1,140 @@
+package com.saviynt.pam.util;
+
+import com.saviynt.pam.enums.SortOrder;
+import com.saviynt.pam.exception.BadRequestException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SortMetricsTest {
+
+    private final SortMetrics metrics = SortMetrics.getInstance();
+    private List<Session> list;
+
+    @BeforeEach
+    void setUp() {
+        list = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            list.add(new Session(100 - i, "s" + i, null, null, (long) i % 7, null, null));
+        }
+        metrics.reset();
+        metrics.setEnabled(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        metrics.setEnabled(false);
+        metrics.reset();
+    }
+
+    @Test
+    @DisplayName("Positive: Sort records counts and notifies listener")
+    void testRecordSort() throws Exception{
+        AtomicInteger sorted = new AtomicInteger();
+        SortMetrics.Listener listener = (type, fields, elements, compares, extractionNanos, sortNanos) -> sorted.addAndGet(elements);
+        metrics.addListener(listener);
+        try {
+            CommonComparator.sort(list, "duration", SortOrder.asc, false);
+            CommonComparator.sort(list, "duration", SortOrder.asc, false);
+        } finally {
+            metrics.removeListener(listener);
+        }
+        SortMetrics.FieldStats stats = metrics.get(Session.class, "duration");
+
+        //assert
+        Assertions.assertEquals(2, stats.getSortCount());
+        Assertions.assertEquals(200, stats.getElementCount());
+        Assertions.assertTrue(stats.getCompareCount() > 0);
+        Assertions.assertTrue(stats.getSortTimePercentileNanos(0.99) > 0);
+        Assertions.assertEquals(200, sorted.get());
+        Assertions.assertEquals(2L, metrics.getSortCounts().get(Session.class.getName() + "#duration"));
+    }
+
+    @Test
+    @DisplayName("Positive: Comparator and sort record descending field under the same key")
+    void testComparatorKey() throws Exception{
+        //Sort
+        CommonComparator.sort(list, "duration", SortOrder.desc, false);
+        Collections.sort(new ArrayList<>(list), new CommonComparator<>("duration", SortOrder.desc));
+        SortMetrics.FieldStats stats = metrics.get(Session.class, "-duration");
+
+        //assert
+        Assertions.assertEquals(1, stats.getSortCount());
+        Assertions.assertTrue(stats.getCompareCount() > 0);
+        Assertions.assertEquals(1, metrics.getSortCounts().size());
+    }
+
+    @Test
+    @DisplayName("Positive: Presorted, reversed and nearly sorted keys recorded")
+    void testRecordStrategy() throws Exception{
+        List<Session> runs = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            runs.add(new Session(i, "s" + i, null, null, (long) (i % 250), null, null));
+        }
+        //Expected
+        List<Session> expected = new ArrayList<>(runs);
+        Collections.sort(expected, new CommonComparator<>("duration", SortOrder.asc, false));
+        //Sort
+        CommonComparator.sort(list, "id", SortOrder.asc, false);
+        CommonComparator.sort(list, "id", SortOrder.asc, false);
+        CommonComparator.sort(runs, "duration", SortOrder.asc, false);
+        SortMetrics.FieldStats stats = metrics.get(Session.class, "id");
+
+        //assert
+        Assertions.assertEquals(1, list.get(0).getId());
+        Assertions.assertEquals(100, list.get(99).getId());
+        Assertions.assertEquals(1, stats.getReversedCount());
+        Assertions.assertEquals(1, stats.getPresortedCount());
+        Assertions.assertEquals(1, metrics.get(Session.class, "duration").getRunMergedCount());
+        Assertions.assertIterableEquals(expected, runs);
+        Assertions.assertEquals(1L, metrics.getPresortedCounts().get(Session.class.getName() + "#id"));
+    }
+
+    @Test
+    @DisplayName("Positive: Index of sort indexed list recorded once per column")
+    void testIndexedListSort() throws Exception{
+        SortIndexedList<Session> indexed = new SortIndexedList<>(list);
+        indexed.sorted("duration", SortOrder.desc, false);
+        indexed.sorted("duration", SortOrder.desc, false);
+
+        //assert
+        Assertions.assertEquals(1, metrics.get(Session.class, "-duration").getSortCount());
+        Assertions.assertEquals(100, metrics.get(Session.class, "-duration").getElementCount());
+    }
+
+    @Test
+    @DisplayName("Negative: Invalid sort column is counted as error")
+    void testRecordError() throws Exception{
+        Assertions.assertThrows(BadRequestException.class,()->{
+            Collections.sort(list, new CommonComparator<>("timeout", SortOrder.desc));
+        });
+
+        //assert
+        Assertions.assertEquals(1, metrics.get(Session.class, SortMetrics.INVALID_FIELDS).getErrorCount());
+        Assertions.assertFalse(metrics.getErrorCounts().containsKey(Session.class.getName() + "#timeout"));
+    }
+
+    @Test
+    @DisplayName("Negative: Invalid and excess sort fields do not grow metrics keys")
+    void testBoundedKeys() throws Exception{
+        for (int i = 0; i < 100; i++) {
+            String field = "missing" + i;
+            Assertions.assertThrows(BadRequestException.class,()->{
+                CommonComparator.sort(list, field, SortOrder.asc, false);
+            });
+        }
+        for (int i = 0; i < SortMetrics.MAX_KEYS + 100; i++) {
+            metrics.get(Session.class, "field" + i);
+        }
+
+        //assert
+        Assertions.assertEquals(100L, metrics.getErrorCounts().get(Session.class.getName() + "#" + SortMetrics.INVALID_FIELDS));
+        Assertions.assertEquals(SortMetrics.MAX_KEYS + 1, metrics.getSortCounts().size());
+        Assertions.assertTrue(metrics.getSortCounts().containsKey(Session.class.getName() + "#" + SortMetrics.OTHER_FIELDS));
+    }
+}
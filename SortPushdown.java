@@ -0,0 +1,375 @@
+package com.saviynt.pam.util;
+
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import javax.persistence.Access;
+import javax.persistence.AccessType;
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.ElementCollection;
+import javax.persistence.Embedded;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.ManyToMany;
+import javax.persistence.ManyToOne;
+import javax.persistence.MappedSuperclass;
+import javax.persistence.OneToMany;
+import javax.persistence.OneToOne;
+import javax.persistence.Transient;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+
+import org.springframework.data.domain.Sort;
+
+import com.saviynt.pam.exception.BadRequestException;
+
+/**
+ * The {@link SortPushdown} translates a {@link SortSpec} on a JPA entity into
+ * the ordering of the database query, a Spring Data {@link Sort}, JPA
+ * Criteria {@link Order}s or a SQL {@code ORDER BY} clause, so the database
+ * can sort with its indexes instead of loading and sorting in memory.
+ * <p>
+ * Keys on basic persistent attributes of the entity are pushed down, with
+ * the null position of the key made explicit since it does not depend on the
+ * direction. Keys on transient properties, nested paths and keys with a
+ * non-binary {@link StringCollation} cannot be sorted by the database. The
+ * leading persistent keys are still pushed down and the loaded list must be
+ * sorted again in memory with {@link #sort(List)}, so the query must not be
+ * paged in that case. Strings are ordered by the database collation when
+ * pushed down.
+ * <p>
+ * The null position is only made explicit for nullable columns, not for ids,
+ * primitives and columns declared non-null, and not where the
+ * {@link NullOrdering} of the database already puts nulls there, so those
+ * keys can still be served by an index. Attributes are mapped with the JPA
+ * access type of each class, honoring {@link Access} on classes and members.
+ */
+public final class SortPushdown {
+
+	/**
+	 * Physical naming of Spring Boot, {@code startDate} maps to column {@code start_date}.
+	 */
+	public static final UnaryOperator<String> SNAKE_CASE = name -> name.replaceAll("([a-z0-9])([A-Z])", "$1_$2")
+			.toLowerCase();
+
+	private static final ClassValue<Map<String, Attribute>> COLUMNS = new ClassValue<>() {
+		@Override
+		protected Map<String, Attribute> computeValue(Class<?> entityClass) {
+			return columns(entityClass);
+		}
+	};
+
+	/**
+	 * Default position of nulls in the ordering of a database.
+	 */
+	public enum NullOrdering {
+
+		/**
+		 * Nulls sort below every value, first when ascending: MySQL, SQL
+		 * Server, SQLite, H2.
+		 */
+		LOW,
+
+		/**
+		 * Nulls sort above every value, last when ascending: PostgreSQL, Oracle.
+		 */
+		HIGH;
+
+		boolean isNullFirst(boolean isAscendingOrder) {
+			return (this == LOW) == isAscendingOrder;
+		}
+	}
+
+	private final SortSpec spec;
+	private final List<SortSpec.Key> pushedKeys;
+	private final Map<String, Attribute> columns;
+
+	private SortPushdown(final SortSpec spec, final List<SortSpec.Key> pushedKeys,
+			final Map<String, Attribute> columns) {
+		this.spec = spec;
+		this.pushedKeys = pushedKeys;
+		this.columns = columns;
+	}
+
+	/**
+	 * Split the specification into the keys the database sorts and the
+	 * in-memory sort of the loaded list.
+	 *
+	 * @param entityClass
+	 * @param spec
+	 * @return pushdown
+	 *
+	 * @throws BadRequestException if a key is neither a basic persistent
+	 *                             attribute nor a sortable property
+	 */
+	public static SortPushdown of(final Class<?> entityClass, final SortSpec spec) {
+		Map<String, Attribute> columns = COLUMNS.get(entityClass);
+		SortSchema schema = SortSchema.of(entityClass);
+		List<SortSpec.Key> pushed = new ArrayList<>(spec.getKeys().size());
+		boolean persistent = true;
+		for (SortSpec.Key key : spec.getKeys()) {
+			persistent &= columns.containsKey(key.getFieldName()) && key.getCollation().isBinary();
+			if (persistent) {
+				pushed.add(key);
+			}
+		}
+		if (pushed.size() < spec.getKeys().size()) {
+			schema.validate(spec);
+		}
+		return new SortPushdown(spec, Collections.unmodifiableList(pushed), columns);
+	}
+
+	/**
+	 * Check whether the database sorts on all keys.
+	 *
+	 * @return false when the loaded list must be sorted in memory
+	 */
+	public boolean isPushedDown() {
+		return pushedKeys.size() == spec.getKeys().size();
+	}
+
+	/**
+	 * Keys sorted by the database, the leading keys of the specification.
+	 *
+	 * @return keys
+	 */
+	public List<SortSpec.Key> getPushedKeys() {
+		return pushedKeys;
+	}
+
+	/**
+	 * Get the Spring Data sort of the pushed down keys, with the native null
+	 * handling for non-null columns.
+	 *
+	 * @return sort, unsorted when no key is pushed down
+	 */
+	public Sort toSort() {
+		List<Sort.Order> orders = new ArrayList<>(pushedKeys.size());
+		for (SortSpec.Key key : pushedKeys) {
+			Sort.Order order = new Sort.Order(key.isAscendingOrder() ? Sort.Direction.ASC : Sort.Direction.DESC,
+					key.getFieldName());
+			if (isNullable(key)) {
+				order = key.isNullFirst() ? order.nullsFirst() : order.nullsLast();
+			}
+			orders.add(order);
+		}
+		return Sort.by(orders);
+	}
+
+	/**
+	 * Get the Criteria orders of the pushed down keys. JPA Criteria has no
+	 * null precedence, so every nullable key is preceded by an order on
+	 * whether the value is null.
+	 *
+	 * @param cb
+	 * @param root entity path of the query
+	 * @return orders
+	 */
+	public List<Order> toOrders(final CriteriaBuilder cb, final Path<?> root) {
+		return toOrders(cb, root, null);
+	}
+
+	/**
+	 * Get the Criteria orders of the pushed down keys. A nullable key is
+	 * preceded by an order on whether the value is null when the database
+	 * puts its nulls on the other side.
+	 *
+	 * @param cb
+	 * @param root entity path of the query
+	 * @param nullOrdering default null ordering of the database, null when unknown
+	 * @return orders
+	 */
+	public List<Order> toOrders(final CriteriaBuilder cb, final Path<?> root, final NullOrdering nullOrdering) {
+		List<Order> orders = new ArrayList<>(pushedKeys.size() * 2);
+		for (SortSpec.Key key : pushedKeys) {
+			Path<?> path = root.get(key.getFieldName());
+			if (needsNullPosition(key, nullOrdering)) {
+				Expression<Integer> nullRank = cb.<Integer>selectCase()
+						.when(cb.isNull(path), key.isNullFirst() ? 0 : 1).otherwise(key.isNullFirst() ? 1 : 0);
+				orders.add(cb.asc(nullRank));
+			}
+			orders.add(key.isAscendingOrder() ? cb.asc(path) : cb.desc(path));
+		}
+		return orders;
+	}
+
+	/**
+	 * Get the SQL {@code ORDER BY} clause of the pushed down keys, with
+	 * {@code NULLS FIRST} or {@code NULLS LAST} on the nullable columns.
+	 *
+	 * @param alias table alias qualifying the columns, null for none
+	 * @param naming physical naming of attributes without an explicit
+	 *               {@code @Column} name, for example {@link #SNAKE_CASE}
+	 * @return clause, empty when no key is pushed down
+	 */
+	public String toOrderBy(final String alias, final UnaryOperator<String> naming) {
+		return toOrderBy(alias, naming, null);
+	}
+
+	/**
+	 * Get the SQL {@code ORDER BY} clause of the pushed down keys, with
+	 * {@code NULLS FIRST} or {@code NULLS LAST} on the nullable columns the
+	 * database orders differently.
+	 *
+	 * @param alias table alias qualifying the columns, null for none
+	 * @param naming physical naming of attributes without an explicit
+	 *               {@code @Column} name, for example {@link #SNAKE_CASE}
+	 * @param nullOrdering default null ordering of the database, null when unknown
+	 * @return clause, empty when no key is pushed down
+	 */
+	public String toOrderBy(final String alias, final UnaryOperator<String> naming,
+			final NullOrdering nullOrdering) {
+		if (pushedKeys.isEmpty()) {
+			return "";
+		}
+		StringBuilder sb = new StringBuilder("ORDER BY ");
+		for (int i = 0; i < pushedKeys.size(); i++) {
+			SortSpec.Key key = pushedKeys.get(i);
+			if (i > 0) {
+				sb.append(", ");
+			}
+			if (alias != null) {
+				sb.append(alias).append('.');
+			}
+			String column = columns.get(key.getFieldName()).column;
+			sb.append(column.isEmpty() ? naming.apply(key.getFieldName()) : column)
+					.append(key.isAscendingOrder() ? " ASC" : " DESC");
+			if (needsNullPosition(key, nullOrdering)) {
+				sb.append(key.isNullFirst() ? " NULLS FIRST" : " NULLS LAST");
+			}
+		}
+		return sb.toString();
+	}
+
+	private boolean isNullable(final SortSpec.Key key) {
+		return columns.get(key.getFieldName()).nullable;
+	}
+
+	private boolean needsNullPosition(final SortSpec.Key key, final NullOrdering nullOrdering) {
+		return isNullable(key)
+				&& (nullOrdering == null || nullOrdering.isNullFirst(key.isAscendingOrder()) != key.isNullFirst());
+	}
+
+	/**
+	 * Sort the loaded list in memory on the whole specification when the
+	 * database did not sort on all keys, the list is already ordered on the
+	 * pushed down keys.
+	 *
+	 * @param list
+	 *
+	 * @throws BadRequestException
+	 */
+	public <T> void sort(final List<T> list) {
+		if (!isPushedDown()) {
+			CommonComparator.sort(list, spec);
+		}
+	}
+
+	/**
+	 * Collect the basic persistent attributes of the entity and its mapped
+	 * superclasses with their column, named by the naming strategy when it
+	 * has no explicit name.
+	 */
+	private static Map<String, Attribute> columns(final Class<?> entityClass) {
+		Map<String, Attribute> columns = new HashMap<>();
+		if (!entityClass.isAnnotationPresent(Entity.class)) {
+			return columns;
+		}
+		AccessType defaultAccess = defaultAccess(entityClass);
+		for (Class<?> c = entityClass; c != null && isMapped(c); c = c.getSuperclass()) {
+			Access classAccess = c.getAnnotation(Access.class);
+			AccessType access = classAccess == null ? defaultAccess : classAccess.value();
+			for (Field field : c.getDeclaredFields()) {
+				int modifiers = field.getModifiers();
+				if ((access == AccessType.FIELD || isAccess(field, AccessType.FIELD)) && !Modifier.isStatic(modifiers)
+						&& !Modifier.isTransient(modifiers) && isBasic(field, field.getType())) {
+					columns.putIfAbsent(field.getName(), new Attribute(field, field.getType()));
+				}
+			}
+			for (Method method : c.getDeclaredMethods()) {
+				String name = SortSchema.propertyName(method);
+				if (name != null && (access == AccessType.PROPERTY || isAccess(method, AccessType.PROPERTY))
+						&& isBasic(method, method.getReturnType())) {
+					columns.putIfAbsent(name, new Attribute(method, method.getReturnType()));
+				}
+			}
+		}
+		return Collections.unmodifiableMap(columns);
+	}
+
+	/**
+	 * JPA default access of the hierarchy: field access when the id is
+	 * mapped on a field.
+	 */
+	private static AccessType defaultAccess(final Class<?> entityClass) {
+		for (Class<?> c = entityClass; c != null && isMapped(c); c = c.getSuperclass()) {
+			for (Field field : c.getDeclaredFields()) {
+				if (field.isAnnotationPresent(Id.class) || field.isAnnotationPresent(EmbeddedId.class)) {
+					return AccessType.FIELD;
+				}
+			}
+		}
+		return AccessType.PROPERTY;
+	}
+
+	private static boolean isAccess(final AnnotatedElement member, final AccessType type) {
+		Access access = member.getAnnotation(Access.class);
+		return access != null && access.value() == type;
+	}
+
+	private static boolean isMapped(final Class<?> c) {
+		return c.isAnnotationPresent(Entity.class) || c.isAnnotationPresent(MappedSuperclass.class);
+	}
+
+	private static boolean isBasic(final AnnotatedElement member, final Class<?> type) {
+		return !member.isAnnotationPresent(Transient.class) && !member.isAnnotationPresent(Embedded.class)
+				&& !member.isAnnotationPresent(EmbeddedId.class) && !member.isAnnotationPresent(ManyToOne.class)
+				&& !member.isAnnotationPresent(OneToOne.class) && !member.isAnnotationPresent(OneToMany.class)
+				&& !member.isAnnotationPresent(ManyToMany.class)
+				&& !member.isAnnotationPresent(ElementCollection.class) && SortSchema.isSortableType(type)
+				&& (!type.isEnum() || isOrdinal(member));
+	}
+
+	/**
+	 * An enum is ordered by ordinal in memory, the database orders a
+	 * {@link EnumType#STRING} column by name. Only an explicit ordinal mapping
+	 * is pushed down, the mapping files or a converter may store an
+	 * unannotated enum as a name.
+	 */
+	private static boolean isOrdinal(final AnnotatedElement member) {
+		Enumerated enumerated = member.getAnnotation(Enumerated.class);
+		return enumerated != null && enumerated.value() == EnumType.ORDINAL;
+	}
+
+	/**
+	 * Column of a basic attribute, the name is empty when it is named by the
+	 * naming strategy.
+	 */
+	private static final class Attribute {
+
+		private final String column;
+		private final boolean nullable;
+
+		Attribute(final AnnotatedElement member, final Class<?> type) {
+			Column column = member.getAnnotation(Column.class);
+			Basic basic = member.getAnnotation(Basic.class);
+			this.column = column == null ? "" : column.name();
+			this.nullable = !type.isPrimitive() && !member.isAnnotationPresent(Id.class)
+					&& (column == null || column.nullable()) && (basic == null || basic.optional());
+		}
+	}
+}
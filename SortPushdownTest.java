@@ -0,0 +1,321 @@
+package com.saviynt.pam.util;
+
+import com.saviynt.pam.enums.SortOrder;
+import com.saviynt.pam.exception.BadRequestException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import javax.persistence.Access;
+import javax.persistence.AccessType;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.Transient;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.*;
+
+public class SortPushdownTest {
+
+    @Test
+    @DisplayName("Positive: Sort pushed down to embedded database matches in-memory sort")
+    void testOrderByDatabase() throws Exception{
+        List<Credential> credentials = new ArrayList<>();
+        String[] names = { "db", null, "ssh", "api", "db", null, "vault" };
+        for (int i = 0; i < names.length; i++) {
+            credentials.add(new Credential(i + 1, names[i], i % 3 == 0 ? null : new Timestamp(1_600_000_000_000L - i % 2 * 1000L)));
+        }
+        SortSpec spec = SortSpec.of("name",SortOrder.asc,true).then("rotatedAt",SortOrder.desc,false)
+                .then("id",SortOrder.desc,false);
+        SortPushdown pushdown = SortPushdown.of(Credential.class,spec);
+        //Expected
+        List<Credential> expected = new ArrayList<>(credentials);
+        CommonComparator.sort(expected,spec);
+        //Sort
+        List<Integer> actual = new ArrayList<>();
+        List<Integer> actualDefaultNulls = new ArrayList<>();
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:pushdown")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE credential (id INT PRIMARY KEY, name VARCHAR(64), rotated_on TIMESTAMP)");
+            }
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO credential VALUES (?, ?, ?)")) {
+                for (Credential credential : credentials) {
+                    insert.setInt(1, credential.getId());
+                    insert.setString(2, credential.getName());
+                    insert.setTimestamp(3, credential.getRotatedAt());
+                    insert.executeUpdate();
+                }
+            }
+            try (Statement statement = connection.createStatement();
+                    ResultSet rs = statement.executeQuery("SELECT c.id FROM credential c " + pushdown.toOrderBy("c",SortPushdown.SNAKE_CASE))) {
+                while (rs.next()) {
+                    actual.add(rs.getInt(1));
+                }
+            }
+            try (Statement statement = connection.createStatement();
+                    ResultSet rs = statement.executeQuery("SELECT c.id FROM credential c "
+                            + pushdown.toOrderBy("c",SortPushdown.SNAKE_CASE,SortPushdown.NullOrdering.LOW))) {
+                while (rs.next()) {
+                    actualDefaultNulls.add(rs.getInt(1));
+                }
+            }
+        }
+
+        //assert
+        Assertions.assertTrue(pushdown.isPushedDown());
+        Assertions.assertEquals("ORDER BY c.name ASC NULLS FIRST, c.rotated_on DESC NULLS LAST, c.id DESC",
+                pushdown.toOrderBy("c",SortPushdown.SNAKE_CASE));
+        Assertions.assertEquals("ORDER BY c.name ASC, c.rotated_on DESC, c.id DESC",
+                pushdown.toOrderBy("c",SortPushdown.SNAKE_CASE,SortPushdown.NullOrdering.LOW));
+        Assertions.assertEquals("ORDER BY c.name ASC NULLS FIRST, c.rotated_on DESC NULLS LAST, c.id DESC",
+                pushdown.toOrderBy("c",SortPushdown.SNAKE_CASE,SortPushdown.NullOrdering.HIGH));
+        Assertions.assertEquals(expected.stream().map(Credential::getId).collect(java.util.stream.Collectors.toList()),actual);
+        Assertions.assertEquals(actual,actualDefaultNulls);
+        Assertions.assertEquals(Sort.by(Sort.Order.asc("name").nullsFirst(),Sort.Order.desc("rotatedAt").nullsLast(),
+                Sort.Order.desc("id")),pushdown.toSort());
+    }
+
+    @Test
+    @DisplayName("Positive: Non-persistent fields sorted in memory")
+    void testInMemoryFallback() throws Exception{
+        List<Credential> credentials = new ArrayList<>();
+        credentials.add(new Credential(1, "db", null));
+        credentials.add(new Credential(2, "api", null));
+        credentials.add(new Credential(3, "ssh", null));
+        SortSpec spec = SortSpec.of("id",SortOrder.asc,false).then("label",SortOrder.asc,false).then("name",SortOrder.asc,false);
+        SortPushdown pushdown = SortPushdown.of(Credential.class,spec);
+        //Expected
+        List<Credential> expected = Arrays.asList(credentials.get(0), credentials.get(1), credentials.get(2));
+        //Sort
+        List<Credential> actual = new ArrayList<>(credentials);
+        Collections.reverse(actual);
+        pushdown.sort(actual);
+
+        //assert
+        Assertions.assertFalse(pushdown.isPushedDown());
+        Assertions.assertEquals(1,pushdown.getPushedKeys().size());
+        Assertions.assertEquals(Sort.by(Sort.Order.asc("id")),pushdown.toSort());
+        Assertions.assertIterableEquals(expected,actual);
+        Assertions.assertFalse(SortPushdown.of(Credential.class,SortSpec.of("owner.name",SortOrder.asc,false)).isPushedDown());
+        Assertions.assertEquals("",SortPushdown.of(Credential.class,SortSpec.of("label",SortOrder.asc,false)).toOrderBy(null,SortPushdown.SNAKE_CASE));
+        Assertions.assertEquals(Sort.unsorted(),SortPushdown.of(Session.class,SortSpec.of("name",SortOrder.asc,false)).toSort());
+    }
+
+    @Test
+    @DisplayName("Positive: Criteria null rank only for nullable keys the database orders differently")
+    void testCriteriaNullRank() throws Exception{
+        SortSpec spec = SortSpec.of("name",SortOrder.asc,true).then("rotatedAt",SortOrder.desc,true)
+                .then("id",SortOrder.desc,false);
+        SortPushdown pushdown = SortPushdown.of(Credential.class,spec);
+        List<String> calls = new ArrayList<>();
+        //Sort
+        List<Order> unknown = pushdown.toOrders(criteria(CriteriaBuilder.class,calls),criteria(Path.class,calls));
+        long unknownRanks = calls.stream().filter("isNull"::equals).count();
+        calls.clear();
+        List<Order> low = pushdown.toOrders(criteria(CriteriaBuilder.class,calls),criteria(Path.class,calls),
+                SortPushdown.NullOrdering.LOW);
+        long lowRanks = calls.stream().filter("isNull"::equals).count();
+
+        //assert
+        Assertions.assertEquals(5,unknown.size());
+        Assertions.assertEquals(2,unknownRanks);
+        Assertions.assertEquals(4,low.size());
+        Assertions.assertEquals(1,lowRanks);
+    }
+
+    @Test
+    @DisplayName("Positive: Class and member access annotations select mapped attributes")
+    void testAccessType() throws Exception{
+        SortSpec spec = SortSpec.of("region",SortOrder.asc,false).then("name",SortOrder.desc,true)
+                .then("id",SortOrder.asc,false);
+
+        //assert
+        Assertions.assertEquals("ORDER BY v.region_code ASC, v.vault_name DESC NULLS FIRST, v.id ASC",
+                SortPushdown.of(Vault.class,spec).toOrderBy("v",SortPushdown.SNAKE_CASE));
+        Assertions.assertFalse(SortPushdown.of(Vault.class,SortSpec.of("label",SortOrder.asc,false)).isPushedDown());
+        Assertions.assertEquals("ORDER BY v.endpoint ASC NULLS LAST",
+                SortPushdown.of(Vault.class,SortSpec.of("URL",SortOrder.asc,false)).toOrderBy("v",SortPushdown.SNAKE_CASE));
+        Assertions.assertEquals("ORDER BY name_length ASC",SortPushdown.of(Credential.class,
+                SortSpec.of("nameLength",SortOrder.asc,false)).toOrderBy(null,SortPushdown.SNAKE_CASE));
+    }
+
+    @Test
+    @DisplayName("Positive: Enums pushed down only with ordinal mapping")
+    void testEnumMapping() throws Exception{
+        List<Gateway> gateways = new ArrayList<>();
+        gateways.add(new Gateway(1, Tier.STANDARD));
+        gateways.add(new Gateway(2, Tier.BASIC));
+        gateways.add(new Gateway(3, Tier.PREMIUM));
+        SortPushdown pushdown = SortPushdown.of(Gateway.class,SortSpec.of("tier",SortOrder.asc,false));
+        //Expected
+        List<Gateway> expected = Arrays.asList(gateways.get(0), gateways.get(2), gateways.get(1));
+        //Sort
+        List<Gateway> actual = new ArrayList<>(gateways);
+        pushdown.sort(actual);
+
+        //assert
+        Assertions.assertFalse(pushdown.isPushedDown());
+        Assertions.assertIterableEquals(expected,actual);
+        Assertions.assertFalse(SortPushdown.of(Gateway.class,SortSpec.of("fallbackTier",SortOrder.asc,false)).isPushedDown());
+        Assertions.assertEquals("ORDER BY level ASC NULLS LAST",SortPushdown.of(Gateway.class,
+                SortSpec.of("level",SortOrder.asc,false)).toOrderBy(null,SortPushdown.SNAKE_CASE));
+    }
+
+    /**
+     * Criteria API stand-in recording the called methods.
+     */
+    @SuppressWarnings("unchecked")
+    private static <C> C criteria(final Class<C> type, final List<String> calls) {
+        InvocationHandler[] handler = new InvocationHandler[1];
+        handler[0] = (proxy, method, args) -> {
+            calls.add(method.getName());
+            Class<?> returnType = method.getReturnType();
+            return returnType.isInterface() ? Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { returnType }, handler[0]) : null;
+        };
+        return (C) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler[0]);
+    }
+
+    @Test
+    @DisplayName("Negative: Field neither persistent nor sortable")
+    void testInvalidField() throws Exception{
+        //assert
+        Assertions.assertThrows(BadRequestException.class,()->{
+            SortPushdown.of(Credential.class,SortSpec.of("secret",SortOrder.asc,false));
+        });
+        Assertions.assertThrows(BadRequestException.class,()->{
+            SortPushdown.of(Credential.class,SortSpec.of("owner",SortOrder.asc,false));
+        });
+    }
+
+    @Entity
+    public static class Credential {
+        @Id
+        private int id;
+        private String name;
+        @Column(name = "rotated_on")
+        private Timestamp rotatedAt;
+        @ManyToOne
+        private Session owner;
+        @Transient
+        private String secret;
+
+        public Credential() {
+        }
+
+        Credential(int id, String name, Timestamp rotatedAt) {
+            this.id = id;
+            this.name = name;
+            this.rotatedAt = rotatedAt;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Timestamp getRotatedAt() {
+            return rotatedAt;
+        }
+
+        public Session getOwner() {
+            return owner;
+        }
+
+        public String getLabel() {
+            return name == null ? null : name.toUpperCase();
+        }
+
+        @Access(AccessType.PROPERTY)
+        @Column(name = "name_length", nullable = false)
+        public int getNameLength() {
+            return name == null ? 0 : name.length();
+        }
+    }
+
+    public enum Tier {
+        STANDARD, PREMIUM, BASIC
+    }
+
+    @Entity
+    public static class Gateway {
+        @Id
+        private int id;
+        @Enumerated(EnumType.STRING)
+        private Tier tier;
+        private Tier fallbackTier;
+        @Enumerated(EnumType.ORDINAL)
+        private Tier level;
+
+        public Gateway() {
+        }
+
+        Gateway(int id, Tier tier) {
+            this.id = id;
+            this.tier = tier;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public Tier getTier() {
+            return tier;
+        }
+
+        public Tier getFallbackTier() {
+            return fallbackTier;
+        }
+
+        public Tier getLevel() {
+            return level;
+        }
+    }
+
+    @Entity
+    @Access(AccessType.PROPERTY)
+    public static class Vault {
+        private int id;
+        private String name;
+        @Access(AccessType.FIELD)
+        @Column(name = "region_code", nullable = false)
+        private String region;
+        private String url;
+
+        @Id
+        public int getId() {
+            return id;
+        }
+
+        @Column(name = "vault_name")
+        public String getName() {
+            return name;
+        }
+
+        @Transient
+        public String getLabel() {
+            return name;
+        }
+
+        @Column(name = "endpoint")
+        public String getURL() {
+            return url;
+        }
+    }
+}
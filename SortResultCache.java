@@ -0,0 +1,240 @@
+package com.saviynt.pam.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.saviynt.pam.exception.BadRequestException;
+
+/**
+ * The {@link SortResultCache} keeps the sort order of a dataset per
+ * {@link SortSpec}, so repeated identical sort requests skip the sort. A
+ * dataset is identified by the caller, for example a tenant and entity name,
+ * with a version stamp that changes whenever its content changes, such as a
+ * modification counter or last update time. An entry of an older version is
+ * replaced by the next request of a newer version, a request of an older
+ * version than the cached one is sorted without the cache.
+ * <p>
+ * Only the permutation of the element indices is cached, not the elements.
+ * The cache holds at most {@code maximumSize} entries and evicts the least
+ * recently used one. Concurrent requests for the same entry wait for the one
+ * sort in progress instead of sorting again. Instances are thread-safe.
+ */
+public final class SortResultCache {
+
+	private final int maximumSize;
+	private final Map<Key, Entry> entries;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder coalesced = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * @param maximumSize maximum number of cached sort orders
+	 */
+	public SortResultCache(int maximumSize) {
+		if (maximumSize < 1) {
+			throw new IllegalArgumentException("Invalid cache size");
+		}
+		this.maximumSize = maximumSize;
+		this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Key, Entry> eldest) {
+				if (size() > SortResultCache.this.maximumSize) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Get the elements of the dataset in sort order, the list itself is not
+	 * modified. The list must hold the content of the dataset at the version,
+	 * in the same order on every call with that version.
+	 *
+	 * @param dataset identity of the dataset
+	 * @param version version stamp of the dataset content
+	 * @param list
+	 * @param spec
+	 * @return sorted copy of the list
+	 *
+	 * @throws BadRequestException
+	 * @throws IllegalArgumentException if the list size differs from the
+	 *                                  cached sort of the same version
+	 */
+	public <T> List<T> sort(final Object dataset, long version, final List<T> list, final SortSpec spec) {
+		Key key = new Key(Objects.requireNonNull(dataset), spec);
+		Object[] elements = list.toArray();
+		Entry entry;
+		boolean owner = false;
+		synchronized (entries) {
+			entry = entries.get(key);
+			if (entry == null || version > entry.version) {
+				entry = new Entry(version);
+				entries.put(key, entry);
+				owner = true;
+			}
+		}
+		int[] sorted;
+		if (owner) {
+			misses.increment();
+			sorted = load(key, entry, elements, spec);
+		} else if (version < entry.version) {
+			// an older snapshot must not replace the newer cached order
+			misses.increment();
+			sorted = CommonComparator.sortIndices(elements, spec);
+		} else {
+			hits.increment();
+			if (!entry.indices.isDone()) {
+				coalesced.increment();
+			}
+			sorted = join(entry);
+			if (sorted.length != elements.length) {
+				throw new IllegalArgumentException("List does not hold the dataset content at version " + version);
+			}
+		}
+		List<T> result = new ArrayList<>(list);
+		IndexSort.apply(result, elements, sorted);
+		return result;
+	}
+
+	/**
+	 * Remove the cached sort orders of the dataset.
+	 *
+	 * @param dataset
+	 */
+	public void invalidate(final Object dataset) {
+		synchronized (entries) {
+			Iterator<Key> it = entries.keySet().iterator();
+			while (it.hasNext()) {
+				if (it.next().dataset.equals(dataset)) {
+					it.remove();
+				}
+			}
+		}
+	}
+
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * Requests served from the cache, including those that waited for a sort
+	 * in progress.
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * Requests that sorted the dataset.
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * Requests that waited for the same sort in progress.
+	 */
+	public long getCoalescedCount() {
+		return coalesced.sum();
+	}
+
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Sort the elements and publish the result to the waiting requests, the
+	 * entry is removed again when the sort fails.
+	 */
+	private int[] load(final Key key, final Entry entry, final Object[] elements, final SortSpec spec) {
+		try {
+			int[] sorted = CommonComparator.sortIndices(elements, spec);
+			entry.indices.complete(sorted);
+			return sorted;
+		} catch (Throwable e) {
+			// errors too, or the requests waiting on the entry would block forever
+			synchronized (entries) {
+				entries.remove(key, entry);
+			}
+			entry.indices.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	private static int[] join(final Entry entry) {
+		try {
+			return entry.indices.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	private static final class Key {
+
+		private final Object dataset;
+		private final SortSpec spec;
+
+		Key(final Object dataset, final SortSpec spec) {
+			this.dataset = dataset;
+			this.spec = spec;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return dataset.equals(other.dataset) && spec.equals(other.spec);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * dataset.hashCode() + spec.hashCode();
+		}
+	}
+
+	private static final class Entry {
+
+		private final long version;
+		private final CompletableFuture<int[]> indices = new CompletableFuture<>();
+
+		Entry(long version) {
+			this.version = version;
+		}
+	}
+}
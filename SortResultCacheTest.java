@@ -0,0 +1,192 @@
+package com.saviynt.pam.util;
+
+import com.saviynt.pam.enums.SortOrder;
+import com.saviynt.pam.exception.BadRequestException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class SortResultCacheTest {
+
+    private final SortSpec spec = SortSpec.of("name", SortOrder.asc, false).then("id", SortOrder.desc, false);
+
+    @Test
+    @DisplayName("Positive: Repeated request served from cache until version changes")
+    void testHitAndVersion() throws Exception{
+        SortResultCache cache = new SortResultCache(10);
+        List<Session> sessions = new ArrayList<>(Arrays.asList(new Session(1, "b", null, null, null, null, null),
+                new Session(2, null, null, null, null, null, null), new Session(3, "a", null, null, null, null, null),
+                new Session(4, "b", null, null, null, null, null)));
+        //Expected
+        List<Session> expected = new ArrayList<>(sessions);
+        CommonComparator.sort(expected, spec);
+        //Sort
+        List<Session> first = cache.sort("sessions", 1L, sessions, spec);
+        List<Session> second = cache.sort("sessions", 1L, sessions, spec);
+        sessions.add(new Session(5, "a", null, null, null, null, null));
+        List<Session> changed = cache.sort("sessions", 2L, sessions, spec);
+
+        //assert
+        Assertions.assertIterableEquals(expected, first);
+        Assertions.assertIterableEquals(expected, second);
+        Assertions.assertEquals(Arrays.asList(5, 3, 4, 1, 2), Arrays.asList(changed.get(0).getId(), changed.get(1).getId(),
+                changed.get(2).getId(), changed.get(3).getId(), changed.get(4).getId()));
+        Assertions.assertEquals(1, sessions.get(0).getId());
+        Assertions.assertEquals(1, cache.getHitCount());
+        Assertions.assertEquals(2, cache.getMissCount());
+        Assertions.assertEquals(1, cache.size());
+    }
+
+    @Test
+    @DisplayName("Positive: Older version sorted without replacing newer cached order")
+    void testOlderVersion() throws Exception{
+        SortResultCache cache = new SortResultCache(10);
+        List<Session> older = Arrays.asList(new Session(2, "b", null, null, null, null, null),
+                new Session(1, "a", null, null, null, null, null));
+        List<Session> newer = Arrays.asList(new Session(3, "c", null, null, null, null, null),
+                new Session(2, "b", null, null, null, null, null), new Session(1, "a", null, null, null, null, null));
+        //Sort
+        cache.sort("sessions", 2L, newer, spec);
+        List<Session> stale = cache.sort("sessions", 1L, older, spec);
+        List<Session> current = cache.sort("sessions", 2L, newer, spec);
+
+        //assert
+        Assertions.assertEquals(Arrays.asList(1, 2), Arrays.asList(stale.get(0).getId(), stale.get(1).getId()));
+        Assertions.assertEquals(Arrays.asList(1, 2, 3), Arrays.asList(current.get(0).getId(), current.get(1).getId(),
+                current.get(2).getId()));
+        Assertions.assertEquals(1, cache.getHitCount());
+        Assertions.assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    @DisplayName("Negative: List not matching the cached version is rejected")
+    void testVersionMismatch() throws Exception{
+        SortResultCache cache = new SortResultCache(10);
+        List<Session> sessions = new ArrayList<>(Arrays.asList(new Session(2, "b", null, null, null, null, null),
+                new Session(1, "a", null, null, null, null, null)));
+        cache.sort("sessions", 1L, sessions, spec);
+        sessions.add(new Session(3, "c", null, null, null, null, null));
+
+        //assert
+        Assertions.assertThrows(IllegalArgumentException.class,()->{
+            cache.sort("sessions", 1L, sessions, spec);
+        });
+    }
+
+    @Test
+    @DisplayName("Positive: Least recently used entry evicted")
+    void testEviction() throws Exception{
+        SortResultCache cache = new SortResultCache(2);
+        List<Session> sessions = Arrays.asList(new Session(2, "b", null, null, null, null, null),
+                new Session(1, "a", null, null, null, null, null));
+        cache.sort("a", 1L, sessions, spec);
+        cache.sort("b", 1L, sessions, spec);
+        cache.sort("a", 1L, sessions, spec);
+        cache.sort("c", 1L, sessions, spec);
+        cache.sort("a", 1L, sessions, spec);
+        cache.sort("b", 1L, sessions, spec);
+        cache.invalidate("b");
+
+        //assert
+        Assertions.assertEquals(2, cache.getEvictionCount());
+        Assertions.assertEquals(2, cache.getHitCount());
+        Assertions.assertEquals(4, cache.getMissCount());
+        Assertions.assertEquals(1, cache.size());
+    }
+
+    @Test
+    @DisplayName("Positive: Concurrent identical requests run one sort")
+    void testCoalescing() throws Exception{
+        SortResultCache cache = new SortResultCache(10);
+        List<Gated> items = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            items.add(new Gated((i * 37) % 100));
+        }
+        SortSpec valueSpec = SortSpec.of("value", SortOrder.desc, false);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<List<Gated>>> futures = new ArrayList<>();
+            futures.add(executor.submit(() -> cache.sort("gated", 1L, items, valueSpec)));
+            Assertions.assertTrue(Gated.entered.await(10, TimeUnit.SECONDS));
+            futures.add(executor.submit(() -> cache.sort("gated", 1L, items, valueSpec)));
+            futures.add(executor.submit(() -> cache.sort("gated", 1L, items, valueSpec)));
+            while (cache.getCoalescedCount() < 2) {
+                Thread.sleep(1);
+            }
+            Gated.gate.countDown();
+            //assert
+            for (Future<List<Gated>> future : futures) {
+                List<Gated> sorted = future.get(10, TimeUnit.SECONDS);
+                Assertions.assertEquals(99, sorted.get(0).getValue());
+                Assertions.assertEquals(0, sorted.get(99).getValue());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertEquals(1, cache.getMissCount());
+        Assertions.assertEquals(2, cache.getCoalescedCount());
+    }
+
+    @Test
+    @DisplayName("Negative: Failed sort is not cached")
+    void testInvalidColumn() throws Exception{
+        SortResultCache cache = new SortResultCache(10);
+        List<Session> sessions = Arrays.asList(new Session(1, "a", null, null, null, null, null),
+                new Session(2, "b", null, null, null, null, null));
+
+        //assert
+        Assertions.assertThrows(BadRequestException.class,()->{
+            cache.sort("sessions", 1L, sessions, SortSpec.of("timeout", SortOrder.asc, false));
+        });
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Negative: Error of a getter leaves no pending entry")
+    void testGetterError() throws Exception{
+        SortResultCache cache = new SortResultCache(10);
+        List<Failing> items = Arrays.asList(new Failing(), new Failing());
+        SortSpec valueSpec = SortSpec.of("value", SortOrder.asc, false);
+
+        //assert
+        Assertions.assertThrows(StackOverflowError.class,()->{
+            cache.sort("failing", 1L, items, valueSpec);
+        });
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertTimeoutPreemptively(java.time.Duration.ofSeconds(10),()->{
+            Assertions.assertThrows(StackOverflowError.class,()->{
+                cache.sort("failing", 1L, items, valueSpec);
+            });
+        });
+    }
+
+    public static class Failing {
+        public Integer getValue() {
+            throw new StackOverflowError();
+        }
+    }
+
+    public static class Gated {
+        static final CountDownLatch entered = new CountDownLatch(1);
+        static final CountDownLatch gate = new CountDownLatch(1);
+
+        private final int value;
+
+        Gated(int value) {
+            this.value = value;
+        }
+
+        public int getValue() throws InterruptedException {
+            entered.countDown();
+            gate.await();
+            return value;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.saviynt.pam.util;
+
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.saviynt.pam.exception.BadRequestException;
+
+/**
+ * The {@link SortSchema} lists the sortable properties of a class: the
+ * readable properties whose type {@link CommonComparator} can compare, see
+ * {@link ValueComparators}, or declared as an open supertype like
+ * {@code Number} or {@code CharSequence} whose values are checked when they
+ * are compared. A property is read from a public getter
+ * ({@code getX()}, or {@code isX()} for a boolean), a record component
+ * accessor or a public field, in that order of preference, found by plain
+ * reflection without JavaBeans introspection.
+ * A sort field may also be a dotted path like {@code user.department.name}
+ * through properties of any type, ending at a sortable property.
+ * <p>
+ * The schema is built once per class and cached, so validating a sort field
+ * is a map lookup and an invalid request fails before any sorting work.
+ */
+public final class SortSchema {
+
+	/**
+	 * Declared types whose values may be comparable at runtime, such as a
+	 * {@code Number} getter returning an Integer. Their values are checked
+	 * when they are compared.
+	 */
+	private static final Set<Class<?>> OPEN_TYPES = Set.of(Object.class, Number.class, CharSequence.class,
+			Serializable.class, Comparable.class);
+
+	private static final String PATH_SEPARATOR = ".";
+
+	private static final ClassValue<SortSchema> SCHEMAS = new ClassValue<>() {
+		@Override
+		protected SortSchema computeValue(Class<?> beanClass) {
+			return new SortSchema(beanClass);
+		}
+	};
+
+	private final Class<?> beanClass;
+	private final Map<String, Member> properties;
+
+	private SortSchema(final Class<?> beanClass) {
+		this.beanClass = beanClass;
+		Map<String, Member> members = new TreeMap<>();
+		for (Method method : beanClass.getMethods()) {
+			String name = propertyName(method);
+			if (name != null) {
+				members.putIfAbsent(name, method);
+			}
+		}
+		if (beanClass.isRecord()) {
+			for (RecordComponent component : beanClass.getRecordComponents()) {
+				members.putIfAbsent(component.getName(), component.getAccessor());
+			}
+		}
+		for (Field field : beanClass.getFields()) {
+			if (!Modifier.isStatic(field.getModifiers())) {
+				members.putIfAbsent(field.getName(), field);
+			}
+		}
+		this.properties = Collections.unmodifiableMap(members);
+	}
+
+	/**
+	 * Get the cached schema of the class.
+	 *
+	 * @param beanClass
+	 * @return schema
+	 */
+	public static SortSchema of(final Class<?> beanClass) {
+		return SCHEMAS.get(beanClass);
+	}
+
+	public Class<?> getBeanClass() {
+		return beanClass;
+	}
+
+	/**
+	 * Names of the sortable properties declared by the class itself, in name
+	 * order. Nested paths are not listed.
+	 *
+	 * @return names
+	 */
+	public Set<String> sortableFields() {
+		Set<String> sortable = new TreeSet<>();
+		for (Map.Entry<String, Member> entry : properties.entrySet()) {
+			if (isSortableType(typeOf(entry.getValue()))) {
+				sortable.add(entry.getKey());
+			}
+		}
+		return Collections.unmodifiableSet(sortable);
+	}
+
+	/**
+	 * Check a sort field, a property name or a dotted path.
+	 *
+	 * @param fieldName
+	 * @return true when the field resolves to a sortable property
+	 */
+	public boolean isSortable(final String fieldName) {
+		return resolve(fieldName) != null;
+	}
+
+	/**
+	 * Get the declared type of a sortable field.
+	 *
+	 * @param fieldName property name or dotted path
+	 * @return type, or null when the field is not sortable
+	 */
+	public Class<?> getType(final String fieldName) {
+		List<Member> path = resolve(fieldName);
+		return path == null ? null : typeOf(path.get(path.size() - 1));
+	}
+
+	/**
+	 * Validate a sort field.
+	 *
+	 * @param fieldName
+	 *
+	 * @throws BadRequestException if the property does not exist or its type is not sortable
+	 */
+	public void validate(final String fieldName) {
+		if (!isSortable(fieldName)) {
+			throw new BadRequestException("Invalid sort column");
+		}
+	}
+
+	/**
+	 * Validate all fields of the sort specification.
+	 *
+	 * @param spec
+	 *
+	 * @throws BadRequestException if a property does not exist or its type is not sortable
+	 */
+	public void validate(final SortSpec spec) {
+		for (SortSpec.Key key : spec.getKeys()) {
+			validate(key.getFieldName());
+		}
+	}
+
+	/**
+	 * Resolve a sort field into the members read from the bean class down to
+	 * the sortable property, a getter or record accessor {@link Method} or a
+	 * {@link Field}.
+	 *
+	 * @param fieldName property name or dotted path
+	 * @return members, or null when the field is not sortable
+	 */
+	List<Member> resolve(final String fieldName) {
+		if (fieldName == null) {
+			return null;
+		}
+		if (!fieldName.contains(PATH_SEPARATOR)) {
+			Member member = properties.get(fieldName);
+			return member != null && isSortableType(typeOf(member)) ? Collections.singletonList(member)
+					: null;
+		}
+		String[] segments = fieldName.split("\\.", -1);
+		List<Member> path = new ArrayList<>(segments.length);
+		SortSchema schema = this;
+		for (int i = 0; i < segments.length; i++) {
+			Member member = schema.properties.get(segments[i]);
+			if (member == null) {
+				return null;
+			}
+			path.add(member);
+			Class<?> type = typeOf(member);
+			if (i < segments.length - 1) {
+				if (type.isPrimitive() || type.isArray()) {
+					return null;
+				}
+				schema = of(type);
+			} else if (!isSortableType(type)) {
+				return null;
+			}
+		}
+		return path;
+	}
+
+	/**
+	 * Check whether a property of the declared type can be sorted: values of
+	 * the type are comparable, or the type is an open supertype like
+	 * {@code Number} whose runtime values may be.
+	 *
+	 * @param type
+	 * @return true when sortable
+	 */
+	static boolean isSortableType(final Class<?> type) {
+		return OPEN_TYPES.contains(type) || ValueComparators.isSupported(type);
+	}
+
+	static Class<?> typeOf(final Member member) {
+		return member instanceof Method ? ((Method) member).getReturnType() : ((Field) member).getType();
+	}
+
+	/**
+	 * Get the property read by a public getter.
+	 *
+	 * @param method
+	 * @return name, or null when the method is not a getter
+	 */
+	static String propertyName(final Method method) {
+		if (Modifier.isStatic(method.getModifiers()) || method.isBridge() || method.isSynthetic()
+				|| method.getParameterCount() != 0 || method.getDeclaringClass() == Object.class) {
+			return null;
+		}
+		String name = method.getName();
+		Class<?> type = method.getReturnType();
+		if (name.startsWith("get") && name.length() > 3 && type != void.class) {
+			return decapitalize(name.substring(3));
+		}
+		if (name.startsWith("is") && name.length() > 2 && type == boolean.class) {
+			return decapitalize(name.substring(2));
+		}
+		return null;
+	}
+
+	/**
+	 * Same rule as the JavaBeans specification, {@code getURL} reads the
+	 * property {@code URL} and {@code getName} the property {@code name}.
+	 */
+	private static String decapitalize(final String name) {
+		if (name.length() > 1 && Character.isUpperCase(name.charAt(1)) && Character.isUpperCase(name.charAt(0))) {
+			return name;
+		}
+		return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+	}
+}
@@ -0,0 +1,176 @@
+package com.saviynt.pam.util;
+
+import com.saviynt.pam.enums.SortOrder;
+import com.saviynt.pam.exception.BadRequestException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.util.*;
+
+public class SortSchemaTest {
+
+    @Test
+    @DisplayName("Positive: Sortable fields of class")
+    void testSortableFields() throws Exception{
+        SortSchema schema = SortSchema.of(Session.class);
+
+        //assert
+        Assertions.assertSame(schema,SortSchema.of(Session.class));
+        Assertions.assertEquals(Arrays.asList("cost","duration","endDate","id","name","startDate","status","timeOut"),
+                new ArrayList<>(schema.sortableFields()));
+        Assertions.assertEquals(Timestamp.class,schema.getType("endDate"));
+        Assertions.assertEquals(boolean.class,schema.getType("status"));
+        Assertions.assertNull(schema.getType("tags"));
+        schema.validate(SortSpec.parse("name,-startDate,id"));
+    }
+
+    @Test
+    @DisplayName("Negative: Invalid and unsupported fields rejected before sorting")
+    void testInvalidFields() throws Exception{
+        SortSchema schema = SortSchema.of(Session.class);
+
+        //assert
+        Assertions.assertFalse(schema.isSortable("timeout"));
+        Assertions.assertFalse(schema.isSortable(null));
+        Assertions.assertThrows(BadRequestException.class,()->{
+            schema.validate("tags");
+        });
+        Assertions.assertThrows(BadRequestException.class,()->{
+            schema.validate(SortSpec.parse("name,timeout"));
+        });
+        Assertions.assertThrows(BadRequestException.class,()->{
+            new CommonComparator<>(Session.class,"tags",SortOrder.asc,false);
+        });
+    }
+
+    @Test
+    @DisplayName("Positive: Sort on public fields and nested property paths")
+    void testNestedPath() throws Exception{
+        List<Account> accounts = new ArrayList<>();
+        String[] departments = { "sales", null, "it", "hr", "it" };
+        for (int i = 0; i < departments.length; i++) {
+            Account account = new Account();
+            account.id = i;
+            account.owner = new Session(i, "user" + i, null, null, null, null, null);
+            account.department = departments[i] == null ? null : new Department(departments[i]);
+            accounts.add(account);
+        }
+        accounts.get(3).owner = null;
+        //Expected
+        List<Account> expected = Arrays.asList(accounts.get(3), accounts.get(2), accounts.get(4),
+                accounts.get(0), accounts.get(1));
+        //Sort
+        List<Account> actual = new ArrayList<>(accounts);
+        CommonComparator.sort(actual, SortSpec.of("department.name",SortOrder.asc,false)
+                .then("owner.name",SortOrder.asc,true));
+        List<Account> compared = new ArrayList<>(accounts);
+        compared.sort(new CommonComparator<Account>("department.name",SortOrder.asc,false)
+                .thenComparing(new CommonComparator<>(Account.class,"owner.name",SortOrder.asc,true)));
+
+        //assert
+        Assertions.assertIterableEquals(expected,actual);
+        Assertions.assertIterableEquals(expected,compared);
+        Assertions.assertEquals(Arrays.asList("id"),new ArrayList<>(SortSchema.of(Account.class).sortableFields()));
+        Assertions.assertEquals(String.class,SortSchema.of(Account.class).getType("department.name"));
+        Assertions.assertFalse(SortSchema.of(Account.class).isSortable("department.code"));
+        Assertions.assertFalse(SortSchema.of(Account.class).isSortable("owner.tags"));
+    }
+
+    @Test
+    @DisplayName("Positive: Properties declared as Number or CharSequence sorted on their values")
+    void testOpenDeclaredTypes() throws Exception{
+        List<Metric> metrics = Arrays.asList(new Metric(3, "c"), new Metric(null, new StringBuilder("a")),
+                new Metric(1, "b"), new Metric(2, null));
+        //Expected
+        List<Metric> expected = Arrays.asList(metrics.get(2), metrics.get(3), metrics.get(0), metrics.get(1));
+        //Sort
+        List<Metric> actual = new ArrayList<>(metrics);
+        Collections.sort(actual, new CommonComparator<>("value", SortOrder.asc));
+        List<Metric> sorted = new ArrayList<>(metrics);
+        CommonComparator.sort(sorted, "value", SortOrder.asc, false);
+        List<Metric> labels = new ArrayList<>(metrics.subList(0, 3));
+        labels.set(1, new Metric(4, "a"));
+        CommonComparator.sort(labels, "label", SortOrder.desc, false);
+
+        //assert
+        Assertions.assertIterableEquals(expected,actual);
+        Assertions.assertIterableEquals(expected,sorted);
+        Assertions.assertEquals(Arrays.asList(3, 1, 4), Arrays.asList(labels.get(0).getValue(), labels.get(1).getValue(), labels.get(2).getValue()));
+        Assertions.assertEquals(Arrays.asList("label","value"),new ArrayList<>(SortSchema.of(Metric.class).sortableFields()));
+        Assertions.assertEquals(Number.class,SortSchema.of(Metric.class).getType("value"));
+    }
+
+    @Test
+    @DisplayName("Negative: Incomparable runtime values of an open declared type")
+    void testOpenDeclaredTypeValues() throws Exception{
+        List<Metric> metrics = Arrays.asList(new Metric(1, "b"), new Metric(2, "a"), new Metric(3L, "c"));
+
+        //assert
+        Assertions.assertThrows(BadRequestException.class,()->{
+            CommonComparator.sort(new ArrayList<>(metrics), "value", SortOrder.asc, false);
+        });
+        Assertions.assertThrows(BadRequestException.class,()->{
+            Collections.sort(new ArrayList<>(metrics), new CommonComparator<>("value", SortOrder.asc));
+        });
+    }
+
+    @Test
+    @DisplayName("Positive: Record components sorted through their accessors")
+    void testRecordComponents() throws Exception{
+        List<Grant> grants = Arrays.asList(new Grant("b", 2), new Grant("c", 1), new Grant("a", 3));
+        //Expected
+        List<String> expected = Arrays.asList("c", "b", "a");
+        //Sort
+        List<Grant> sorted = new ArrayList<>(grants);
+        Collections.sort(sorted, new CommonComparator<>(Grant.class, "level", SortOrder.asc, false));
+        List<String> actual = new ArrayList<>();
+        for (Grant grant : sorted) {
+            actual.add(grant.role());
+        }
+
+        //assert
+        Assertions.assertIterableEquals(expected,actual);
+        Assertions.assertEquals(Arrays.asList("level","role"),new ArrayList<>(SortSchema.of(Grant.class).sortableFields()));
+    }
+
+    public record Grant(String role, int level) {
+    }
+
+    public static class Metric {
+        private final Number value;
+        private final CharSequence label;
+
+        Metric(Number value, CharSequence label) {
+            this.value = value;
+            this.label = label;
+        }
+
+        public Number getValue() {
+            return value;
+        }
+
+        public CharSequence getLabel() {
+            return label;
+        }
+    }
+
+    public static class Account {
+        public int id;
+        public Session owner;
+        public Department department;
+    }
+
+    public static class Department {
+        private final String name;
+
+        Department(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
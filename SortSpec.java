@@ -0,0 +1,231 @@
+package com.saviynt.pam.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+import com.saviynt.pam.enums.SortOrder;
+import com.saviynt.pam.exception.BadRequestException;
+
+/**
+ * The {@link SortSpec} describes a multi-key sort as an ordered list of
+ * (fieldName, {@link SortOrder}, isNullFirst) entries, each entry compared
+ * with the same rules as {@link CommonComparator}. String keys may carry a
+ * {@link StringCollation} for case-insensitive or locale ordering. Instances
+ * are immutable.
+ */
+public final class SortSpec {
+
+	private static final String SEPARATOR = ",";
+	private static final char DESC_PREFIX = '-';
+	private static final char ASC_PREFIX = '+';
+
+	private final List<Key> keys;
+
+	private SortSpec(final List<Key> keys) {
+		this.keys = Collections.unmodifiableList(keys);
+	}
+
+	/**
+	 * Create single key sort specification.
+	 * 
+	 * @param fieldName
+	 * @param sortOrder
+	 * @param isNullFirst
+	 * @return spec
+	 */
+	public static SortSpec of(final String fieldName, SortOrder sortOrder, boolean isNullFirst) {
+		return of(fieldName, sortOrder, isNullFirst, StringCollation.binary());
+	}
+
+	/**
+	 * Create single key sort specification ordering string values with the
+	 * collation.
+	 * 
+	 * @param fieldName
+	 * @param sortOrder
+	 * @param isNullFirst
+	 * @param collation
+	 * @return spec
+	 */
+	public static SortSpec of(final String fieldName, SortOrder sortOrder, boolean isNullFirst,
+			final StringCollation collation) {
+		List<Key> keys = new ArrayList<>(1);
+		keys.add(new Key(fieldName, sortOrder, isNullFirst, collation));
+		return new SortSpec(keys);
+	}
+
+	/**
+	 * Parse sort specification like {@code name,-startDate,id}, a leading
+	 * {@code -} sorts the field descending and {@code +} or no prefix ascending.
+	 * Null values are placed last.
+	 * 
+	 * @param spec
+	 * @return spec
+	 * 
+	 * @throws BadRequestException if the specification is empty or has an empty field
+	 */
+	public static SortSpec parse(final String spec) {
+		if (spec == null || spec.trim().isEmpty()) {
+			throw new BadRequestException("Invalid sort column");
+		}
+		String[] tokens = spec.split(SEPARATOR, -1);
+		List<Key> keys = new ArrayList<>(tokens.length);
+		for (String token : tokens) {
+			String field = token.trim();
+			SortOrder sortOrder = SortOrder.asc;
+			if (!field.isEmpty() && (field.charAt(0) == DESC_PREFIX || field.charAt(0) == ASC_PREFIX)) {
+				sortOrder = field.charAt(0) == DESC_PREFIX ? SortOrder.desc : SortOrder.asc;
+				field = field.substring(1).trim();
+			}
+			if (field.isEmpty()) {
+				throw new BadRequestException("Invalid sort column");
+			}
+			keys.add(new Key(field, sortOrder, false, StringCollation.binary()));
+		}
+		return new SortSpec(keys);
+	}
+
+	/**
+	 * Append a key, used when the previous keys are equal.
+	 * 
+	 * @param fieldName
+	 * @param sortOrder
+	 * @param isNullFirst
+	 * @return new spec
+	 */
+	public SortSpec then(final String fieldName, SortOrder sortOrder, boolean isNullFirst) {
+		return then(fieldName, sortOrder, isNullFirst, StringCollation.binary());
+	}
+
+	/**
+	 * Append a key ordering string values with the collation, used when the
+	 * previous keys are equal.
+	 * 
+	 * @param fieldName
+	 * @param sortOrder
+	 * @param isNullFirst
+	 * @param collation
+	 * @return new spec
+	 */
+	public SortSpec then(final String fieldName, SortOrder sortOrder, boolean isNullFirst,
+			final StringCollation collation) {
+		List<Key> next = new ArrayList<>(keys.size() + 1);
+		next.addAll(keys);
+		next.add(new Key(fieldName, sortOrder, isNullFirst, collation));
+		return new SortSpec(next);
+	}
+
+	/**
+	 * Compile the specification into one comparator for the class, the
+	 * getters of all keys are resolved and validated here.
+	 * 
+	 * @param type
+	 * @return comparator
+	 * 
+	 * @throws BadRequestException if the class has no such property
+	 */
+	public <T> Comparator<T> comparator(final Class<T> type) {
+		return new CompiledComparator<>(this, type);
+	}
+
+	/**
+	 * Compile the specification into one comparator, the getters are
+	 * resolved for the class of the first compared element.
+	 * 
+	 * @return comparator
+	 */
+	public <T> Comparator<T> comparator() {
+		return new CompiledComparator<>(this, null);
+	}
+
+	public List<Key> getKeys() {
+		return keys;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return this == o || o instanceof SortSpec && keys.equals(((SortSpec) o).keys);
+	}
+
+	@Override
+	public int hashCode() {
+		return keys.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Key key : keys) {
+			if (sb.length() > 0) {
+				sb.append(SEPARATOR);
+			}
+			sb.append(key);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * One entry of the sort specification.
+	 */
+	public static final class Key {
+
+		private final String fieldName;
+		private final SortOrder sortOrder;
+		private final boolean isNullFirst;
+		private final StringCollation collation;
+
+		Key(final String fieldName, SortOrder sortOrder, boolean isNullFirst, final StringCollation collation) {
+			this.fieldName = Objects.requireNonNull(fieldName);
+			this.sortOrder = SortOrder.asc == sortOrder ? SortOrder.asc : SortOrder.desc;
+			this.isNullFirst = isNullFirst;
+			this.collation = Objects.requireNonNull(collation);
+		}
+
+		public String getFieldName() {
+			return fieldName;
+		}
+
+		public SortOrder getSortOrder() {
+			return sortOrder;
+		}
+
+		public boolean isNullFirst() {
+			return isNullFirst;
+		}
+
+		public StringCollation getCollation() {
+			return collation;
+		}
+
+		boolean isAscendingOrder() {
+			return SortOrder.asc == sortOrder;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return fieldName.equals(other.fieldName) && sortOrder == other.sortOrder
+					&& isNullFirst == other.isNullFirst && collation.equals(other.collation);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(fieldName, sortOrder, isNullFirst, collation);
+		}
+
+		@Override
+		public String toString() {
+			return (isAscendingOrder() ? "" : String.valueOf(DESC_PREFIX)) + fieldName
+					+ (isNullFirst ? " nullsFirst" : "") + (collation.isBinary() ? "" : " collate " + collation);
+		}
+	}
+}
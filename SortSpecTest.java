@@ -0,0 +1,137 @@
+package com.saviynt.pam.util;
+
+import com.saviynt.pam.enums.SortOrder;
+import com.saviynt.pam.exception.BadRequestException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.stream.Collectors;
+
+public class SortSpecTest {
+
+    private SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private List<Session> list;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        list = List.of(
+                new Session(1,"one",dateFormat.parse("2020-01-01 21:12:22"),null,100l,2.3d,1.0f),
+                new Session(2,"two",dateFormat.parse("2020-01-04 21:12:22"),null,100l,8.9d,67.6f),
+                new Session(3,"one",dateFormat.parse("2020-01-05 21:12:22"),null,null,4d,null),
+                new Session(4,"two",null,null,300l,null,null),
+                new Session(5,null,dateFormat.parse("2020-01-02 21:12:22"),null,600l,7d,9f),
+                new Session(6,"one",dateFormat.parse("2020-01-05 21:12:22"),null,700l,34d,89f),
+                new Session(7,"two",dateFormat.parse("2020-01-02 09:12:22"),null,100l,3.4d,5.6f)
+        ).stream().collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Positive: Parse sort specification")
+    void testParse() throws Exception{
+        SortSpec spec = SortSpec.parse("name, -startDate,+id");
+
+        //assert
+        Assertions.assertEquals(3,spec.getKeys().size());
+        Assertions.assertEquals("name",spec.getKeys().get(0).getFieldName());
+        Assertions.assertEquals(SortOrder.asc,spec.getKeys().get(0).getSortOrder());
+        Assertions.assertEquals("startDate",spec.getKeys().get(1).getFieldName());
+        Assertions.assertEquals(SortOrder.desc,spec.getKeys().get(1).getSortOrder());
+        Assertions.assertEquals(SortOrder.asc,spec.getKeys().get(2).getSortOrder());
+        Assertions.assertEquals(SortSpec.of("name",SortOrder.asc,false)
+                .then("startDate",SortOrder.desc,false)
+                .then("id",SortOrder.asc,false),spec);
+    }
+
+    @Test
+    @DisplayName("Positive: Compiled comparator matches chained comparators")
+    void testComparator() throws Exception{
+        SortSpec spec = SortSpec.of("name",SortOrder.asc,true)
+                .then("startDate",SortOrder.desc,false)
+                .then("id",SortOrder.desc,false);
+        //Expected
+        List<Session> expected = new ArrayList<>(list);
+        expected.sort(new CommonComparator<Session>("name",SortOrder.asc,true)
+                .thenComparing(new CommonComparator<>("startDate",SortOrder.desc,false))
+                .thenComparing(new CommonComparator<>("id",SortOrder.desc,false)));
+        //Sort
+        List<Session> actual = new ArrayList<>(list);
+        actual.sort(spec.comparator(Session.class));
+        List<Session> extracted = new ArrayList<>(list);
+        CommonComparator.sort(extracted,spec);
+
+        //assert
+        Assertions.assertIterableEquals(expected,actual);
+        Assertions.assertIterableEquals(expected,extracted);
+    }
+
+    @Test
+    @DisplayName("Positive: Locale collation sort matches collator order")
+    void testLocaleCollation() throws Exception{
+        List<Session> names = new ArrayList<>();
+        String[] values = { "zoe", "\u00c9mile", "adam", "\u00e9ric", "Zack", null, "Eric", "emile" };
+        for (int i = 0; i < values.length; i++) {
+            names.add(new Session(i, values[i], null, null, null, null, null));
+        }
+        SortSpec spec = SortSpec.of("name",SortOrder.asc,false,StringCollation.of(Locale.FRENCH))
+                .then("id",SortOrder.asc,false);
+        java.text.Collator collator = java.text.Collator.getInstance(Locale.FRENCH);
+        collator.setDecomposition(java.text.Collator.CANONICAL_DECOMPOSITION);
+        //Expected
+        List<Session> expected = new ArrayList<>(names);
+        expected.sort(Comparator.comparing(Session::getName,Comparator.nullsLast(collator))
+                .thenComparing(Session::getId));
+        //Sort
+        List<Session> actual = new ArrayList<>(names);
+        CommonComparator.sort(actual, spec);
+        List<Session> compared = new ArrayList<>(names);
+        compared.sort(spec.comparator(Session.class));
+
+        //assert
+        Assertions.assertIterableEquals(expected,actual);
+        Assertions.assertIterableEquals(expected,compared);
+        Assertions.assertIterableEquals(expected.subList(2, 5),CommonComparator.topK(names, spec, 2, 3));
+    }
+
+    @Test
+    @DisplayName("Positive: Case-insensitive sort keeps equal names in encounter order")
+    void testCaseInsensitiveCollation() throws Exception{
+        List<Session> names = new ArrayList<>();
+        String[] values = { "bob", "Alice", "BOB", "alice", "carl" };
+        for (int i = 0; i < values.length; i++) {
+            names.add(new Session(i, values[i], null, null, null, null, null));
+        }
+        SortSpec spec = SortSpec.of("name",SortOrder.desc,false,StringCollation.caseInsensitive());
+        //Sort
+        List<Session> actual = new ArrayList<>(names);
+        CommonComparator.sort(actual, spec);
+        List<Session> compared = new ArrayList<>(names);
+        compared.sort(spec.comparator());
+
+        //assert
+        Assertions.assertEquals(Arrays.asList(4,0,2,1,3),
+                actual.stream().map(Session::getId).collect(Collectors.toList()));
+        Assertions.assertIterableEquals(actual,compared);
+        Assertions.assertEquals("-name collate ci",spec.toString());
+    }
+
+    @Test
+    @DisplayName("Negative: Invalid field name rejected at compile time")
+    void testInvalidFieldName() throws Exception{
+
+        //assert
+        Assertions.assertThrows(BadRequestException.class,()->{
+            SortSpec.parse("name,-timeout").comparator(Session.class);
+        });
+        Assertions.assertThrows(BadRequestException.class,()->{
+            SortSpec.parse("name,,id");
+        });
+        Assertions.assertThrows(BadRequestException.class,()->{
+            SortSpec.parse("name,");
+        });
+    }
+}
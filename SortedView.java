@@ -0,0 +1,387 @@
+package com.saviynt.pam.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.saviynt.pam.exception.BadRequestException;
+
+/**
+ * The {@link SortedView} keeps a set of elements in {@link SortSpec} order as
+ * elements are added, removed or updated, so a live list does not have to be
+ * re-sorted on every read. The elements are held in a treap keyed on their
+ * extracted sort keys, with the insertion sequence as tiebreaker, and every
+ * node tracks its subtree size so that positional and page queries take
+ * O(log N). Elements are identified by reference. Not thread-safe.
+ */
+public class SortedView<T> implements Iterable<T> {
+
+	private final CompiledComparator<T> comparator;
+	private final Map<T, Node> nodes = new IdentityHashMap<>();
+	private Node root;
+	private long sequence;
+	private int seed = 0x2545F491;
+
+	/**
+	 * @param spec
+	 */
+	public SortedView(final SortSpec spec) {
+		this.comparator = new CompiledComparator<>(spec, null);
+	}
+
+	/**
+	 * @param type
+	 * @param spec
+	 * 
+	 * @throws BadRequestException if the class has no such property
+	 */
+	public SortedView(final Class<T> type, final SortSpec spec) {
+		this.comparator = new CompiledComparator<>(spec, type);
+	}
+
+	/**
+	 * Add the element at its sort position.
+	 * 
+	 * @param element
+	 * @return false if the element is already in the view
+	 * 
+	 * @throws BadRequestException
+	 */
+	public boolean add(final T element) {
+		if (nodes.containsKey(element)) {
+			return false;
+		}
+		Node node = new Node(element, extract(element), sequence++, nextPriority());
+		root = insert(root, node);
+		nodes.put(element, node);
+		return true;
+	}
+
+	/**
+	 * Remove the element.
+	 * 
+	 * @param element
+	 * @return false if the element is not in the view
+	 */
+	public boolean remove(final Object element) {
+		Node node = nodes.remove(element);
+		if (node == null) {
+			return false;
+		}
+		root = delete(root, node);
+		return true;
+	}
+
+	/**
+	 * Move the element to its new position after its sort fields changed.
+	 * Among equal keys the element keeps its original insertion order.
+	 * 
+	 * @param element
+	 * @return false if the element is not in the view
+	 * 
+	 * @throws BadRequestException
+	 */
+	public boolean update(final T element) {
+		Node node = nodes.get(element);
+		if (node == null) {
+			return false;
+		}
+		Object[] keys = extract(element);
+		root = delete(root, node);
+		node.keys = keys;
+		node.left = null;
+		node.right = null;
+		node.size = 1;
+		root = insert(root, node);
+		return true;
+	}
+
+	public int size() {
+		return size(root);
+	}
+
+	public boolean isEmpty() {
+		return root == null;
+	}
+
+	public boolean contains(final Object element) {
+		return nodes.containsKey(element);
+	}
+
+	/**
+	 * Get the element at the position in sort order.
+	 * 
+	 * @param index
+	 * @return element
+	 */
+	public T get(int index) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		}
+		Node node = root;
+		while (true) {
+			int leftSize = size(node.left);
+			if (index < leftSize) {
+				node = node.left;
+			} else if (index == leftSize) {
+				return node.element;
+			} else {
+				index -= leftSize + 1;
+				node = node.right;
+			}
+		}
+	}
+
+	/**
+	 * Get the position of the element in sort order.
+	 * 
+	 * @param element
+	 * @return index, or -1 if the element is not in the view
+	 */
+	public int indexOf(final Object element) {
+		Node target = nodes.get(element);
+		if (target == null) {
+			return -1;
+		}
+		int index = 0;
+		Node node = root;
+		while (node != target) {
+			if (compare(target, node) < 0) {
+				node = node.left;
+			} else {
+				index += size(node.left) + 1;
+				node = node.right;
+			}
+		}
+		return index + size(node.left);
+	}
+
+	/**
+	 * Get a page of the elements in sort order.
+	 * 
+	 * @param offset
+	 * @param limit
+	 * @return page
+	 */
+	public List<T> page(int offset, int limit) {
+		if (offset < 0 || limit < 0) {
+			throw new BadRequestException("Invalid page request");
+		}
+		int to = (int) Math.min((long) offset + limit, size());
+		if (offset >= to) {
+			return Collections.emptyList();
+		}
+		List<T> page = new ArrayList<>(to - offset);
+		Iterator<T> it = iterator(offset);
+		for (int i = offset; i < to; i++) {
+			page.add(it.next());
+		}
+		return page;
+	}
+
+	/**
+	 * Get the elements whose first sort key lies between the bounds, where
+	 * {@code from} is the bound reached first in sort order.
+	 * 
+	 * @param from inclusive bound, null for the start of the view
+	 * @param to exclusive bound, null for the end of the view
+	 * @return elements in sort order
+	 */
+	public List<T> range(final Object from, final Object to) {
+		int start = from == null ? 0 : lowerBound(from);
+		int end = to == null ? size() : lowerBound(to);
+		return page(start, Math.max(0, end - start));
+	}
+
+	public List<T> toList() {
+		return page(0, size());
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return iterator(0);
+	}
+
+	/**
+	 * Iterate in sort order starting at the position.
+	 */
+	private Iterator<T> iterator(int from) {
+		Deque<Node> path = new ArrayDeque<>();
+		Node node = root;
+		int index = from;
+		while (node != null) {
+			int leftSize = size(node.left);
+			if (index < leftSize) {
+				path.push(node);
+				node = node.left;
+			} else if (index == leftSize) {
+				path.push(node);
+				break;
+			} else {
+				index -= leftSize + 1;
+				node = node.right;
+			}
+		}
+		return new Iterator<T>() {
+
+			@Override
+			public boolean hasNext() {
+				return !path.isEmpty();
+			}
+
+			@Override
+			public T next() {
+				if (path.isEmpty()) {
+					throw new NoSuchElementException();
+				}
+				Node current = path.pop();
+				for (Node n = current.right; n != null; n = n.left) {
+					path.push(n);
+				}
+				return current.element;
+			}
+		};
+	}
+
+	/**
+	 * Count the elements whose first key comes before the value.
+	 */
+	private int lowerBound(final Object from) {
+		Object value = comparator.toKey(0, from);
+		int index = 0;
+		Node node = root;
+		while (node != null) {
+			if (comparator.compareKey(0, node.keys[0], value) < 0) {
+				index += size(node.left) + 1;
+				node = node.right;
+			} else {
+				node = node.left;
+			}
+		}
+		return index;
+	}
+
+	private Object[] extract(final T element) {
+		Object[] keys = new Object[comparator.keyCount()];
+		try {
+			comparator.extract(element, keys);
+		} catch (SecurityException | IllegalArgumentException e) {
+			throw new BadRequestException("Invalid sort column");
+		}
+		return keys;
+	}
+
+	private int compare(final Node n1, final Node n2) {
+		int value = comparator.compareKeys(n1.keys, n2.keys);
+		return value != 0 ? value : Long.compare(n1.sequence, n2.sequence);
+	}
+
+	private Node insert(Node node, final Node inserted) {
+		if (node == null) {
+			return inserted;
+		}
+		if (compare(inserted, node) < 0) {
+			node.left = insert(node.left, inserted);
+			if (node.left.priority > node.priority) {
+				node = rotateRight(node);
+			}
+		} else {
+			node.right = insert(node.right, inserted);
+			if (node.right.priority > node.priority) {
+				node = rotateLeft(node);
+			}
+		}
+		node.resize();
+		return node;
+	}
+
+	private Node delete(final Node node, final Node deleted) {
+		if (node == deleted) {
+			return merge(node.left, node.right);
+		}
+		if (compare(deleted, node) < 0) {
+			node.left = delete(node.left, deleted);
+		} else {
+			node.right = delete(node.right, deleted);
+		}
+		node.resize();
+		return node;
+	}
+
+	private Node merge(final Node left, final Node right) {
+		if (left == null) {
+			return right;
+		}
+		if (right == null) {
+			return left;
+		}
+		if (left.priority > right.priority) {
+			left.right = merge(left.right, right);
+			left.resize();
+			return left;
+		}
+		right.left = merge(left, right.left);
+		right.resize();
+		return right;
+	}
+
+	private Node rotateRight(final Node node) {
+		Node left = node.left;
+		node.left = left.right;
+		left.right = node;
+		node.resize();
+		left.resize();
+		return left;
+	}
+
+	private Node rotateLeft(final Node node) {
+		Node right = node.right;
+		node.right = right.left;
+		right.left = node;
+		node.resize();
+		right.resize();
+		return right;
+	}
+
+	private int size(final Node node) {
+		return node == null ? 0 : node.size;
+	}
+
+	private int nextPriority() {
+		seed ^= seed << 13;
+		seed ^= seed >>> 17;
+		seed ^= seed << 5;
+		return seed;
+	}
+
+	/**
+	 * Treap node of one element.
+	 */
+	private final class Node {
+
+		private final T element;
+		private final long sequence;
+		private final int priority;
+		private Object[] keys;
+		private Node left;
+		private Node right;
+		private int size = 1;
+
+		Node(final T element, final Object[] keys, long sequence, int priority) {
+			this.element = element;
+			this.keys = keys;
+			this.sequence = sequence;
+			this.priority = priority;
+		}
+
+		void resize() {
+			size = 1 + size(left) + size(right);
+		}
+	}
+}
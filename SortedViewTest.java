@@ -0,0 +1,78 @@
+package com.saviynt.pam.util;
+
+import com.saviynt.pam.enums.SortOrder;
+import com.saviynt.pam.exception.BadRequestException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+public class SortedViewTest {
+
+    private final SortSpec spec = SortSpec.of("duration", SortOrder.desc, true).then("name", SortOrder.asc, false);
+
+    @Test
+    @DisplayName("Positive: View stays in comparator order across add, remove and update")
+    void testIncrementalOrder() throws Exception{
+        Random random = new Random(5);
+        SortedView<Session> view = new SortedView<>(Session.class, spec);
+        List<Session> inserted = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            int op = random.nextInt(10);
+            if (op < 6 || inserted.isEmpty()) {
+                Session session = new Session(i, "s" + random.nextInt(20), null, null,
+                        random.nextInt(10) == 0 ? null : (long) random.nextInt(50), null, null);
+                view.add(session);
+                inserted.add(session);
+            } else if (op < 8) {
+                Session session = inserted.remove(random.nextInt(inserted.size()));
+                Assertions.assertTrue(view.remove(session));
+            } else {
+                Session session = inserted.get(random.nextInt(inserted.size()));
+                session.setDuration((long) random.nextInt(50));
+                Assertions.assertTrue(view.update(session));
+            }
+        }
+        //Expected
+        List<Session> expected = new ArrayList<>(inserted);
+        expected.sort(spec.comparator(Session.class));
+
+        //assert
+        Assertions.assertIterableEquals(expected, view.toList());
+        Assertions.assertEquals(expected.size(), view.size());
+        Assertions.assertIterableEquals(expected.subList(10, 35), view.page(10, 25));
+        Assertions.assertSame(expected.get(17), view.get(17));
+        Assertions.assertEquals(17, view.indexOf(expected.get(17)));
+    }
+
+    @Test
+    @DisplayName("Positive: Range query on first sort key")
+    void testRange() throws Exception{
+        SortedView<Session> view = new SortedView<>(spec);
+        for (int i = 0; i < 100; i++) {
+            view.add(new Session(i, "s" + i, null, null, i % 10 == 0 ? null : (long) i, null, null));
+        }
+        //Expected
+        List<Long> expected = view.toList().stream()
+                .map(Session::getDuration)
+                .filter(d -> d != null && d <= 40 && d > 20)
+                .collect(Collectors.toList());
+        //Actual
+        List<Long> actual = view.range(40L, 20L).stream().map(Session::getDuration).collect(Collectors.toList());
+
+        //assert
+        Assertions.assertIterableEquals(expected, actual);
+    }
+
+    @Test
+    @DisplayName("Negative: View with invalid field name")
+    void testInvalidFieldName() throws Exception{
+
+        //assert
+        Assertions.assertThrows(BadRequestException.class,()->{
+            new SortedView<>(Session.class, SortSpec.parse("timeout"));
+        });
+    }
+}
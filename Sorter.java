@@ -0,0 +1,250 @@
+package com.saviynt.pam.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.saviynt.pam.enums.SortOrder;
+import com.saviynt.pam.exception.BadRequestException;
+
+/**
+ * The {@link Sorter} sorts lists with the same ordering as
+ * {@link CommonComparator#sort(List, SortSpec)}, keeping the element
+ * snapshot, key columns, index arrays and merge buffers between calls. They
+ * only grow when a larger list is sorted, so repeated sorts of lists of
+ * similar size allocate close to nothing once warmed up. Arrays grown past
+ * {@value #MAX_RETAINED_SIZE} elements are released after the sort instead of
+ * being kept.
+ * <p>
+ * Not thread-safe, use one instance per thread, for example
+ * {@link #forCurrentThread()}.
+ */
+public final class Sorter {
+
+	private static final Logger log = LoggerFactory.getLogger(Sorter.class);
+	private static final RateLimitedLogger errorLog = new RateLimitedLogger(log);
+	private static final SortMetrics metrics = SortMetrics.getInstance();
+
+	/**
+	 * Largest list whose arrays are kept for the next sort.
+	 */
+	static final int MAX_RETAINED_SIZE = 1 << 17;
+
+	private static final Object[] NO_ELEMENTS = {};
+	private static final int[] NO_INTS = {};
+	private static final long[] NO_LONGS = {};
+
+	private static final ThreadLocal<Sorter> CURRENT = ThreadLocal.withInitial(Sorter::new);
+
+	private Object[] elements = NO_ELEMENTS;
+	private int[] indices = NO_INTS;
+	private int[] buffer = NO_INTS;
+	private int[] runStarts = NO_INTS;
+	private long[] radixKeys = NO_LONGS;
+	private long[] radixKeyBuffer = NO_LONGS;
+	private int[] radixIndexBuffer = NO_INTS;
+	private int[][] radixCounts;
+
+	private SortSpec spec;
+	private Class<?> beanClass;
+	private SortKeyColumn.ValueColumn[] columns;
+	private SortKeyColumn column;
+	private boolean sorting;
+
+	/**
+	 * Get the sorter of the current thread. Every virtual thread gets its own
+	 * sorter, so pooled platform threads benefit most.
+	 *
+	 * @return sorter
+	 */
+	public static Sorter forCurrentThread() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Sort the list on the field.
+	 *
+	 * @param list
+	 * @param fieldName
+	 * @param sortOrder
+	 * @param isNullFirst
+	 *
+	 * @throws BadRequestException
+	 */
+	public <T> void sort(final List<T> list, final String fieldName, SortOrder sortOrder, boolean isNullFirst) {
+		Objects.requireNonNull(fieldName);
+		sort(list, SortSpec.of(fieldName, sortOrder, isNullFirst));
+	}
+
+	/**
+	 * Sort the list on all keys of the specification.
+	 *
+	 * @param list
+	 * @param spec
+	 *
+	 * @throws BadRequestException
+	 */
+	public <T> void sort(final List<T> list, final SortSpec spec) {
+		int size = list.size();
+		if (size < 2) {
+			return;
+		}
+		if (sorting) {
+			// a getter sorting on the same thread
+			new Sorter().sort(list, spec);
+			return;
+		}
+		sorting = true;
+		try {
+			sort(list, spec, size);
+		} finally {
+			release(size);
+			sorting = false;
+		}
+	}
+
+	private <T> void sort(final List<T> list, final SortSpec spec, int size) {
+		if (elements.length < size) {
+			elements = new Object[size];
+		}
+		int count = 0;
+		for (T t : list) {
+			elements[count++] = t;
+		}
+		try {
+			if (metrics.isEnabled()) {
+				long start = System.nanoTime();
+				SortKeyColumn.CountingColumn counting = new SortKeyColumn.CountingColumn(extract(spec, size));
+				long extracted = System.nanoTime();
+				int[] sorted = IndexSort.sort(counting, size, this);
+				apply(list, sorted, size);
+				metrics.recordSort(elements[0].getClass(), spec.toString(), size, counting.getCompareCount(),
+						extracted - start, System.nanoTime() - extracted);
+				metrics.recordStrategy(elements[0].getClass(), spec.toString(), counting.getStrategy());
+			} else {
+				apply(list, IndexSort.sort(extract(spec, size), size, this), size);
+			}
+		} catch (SecurityException | IllegalArgumentException e) {
+			errorLog.error("Invalid sort column " + spec, e);
+			if (metrics.isEnabled()) {
+				metrics.recordError(elements[0].getClass(), spec.toString());
+			}
+			this.spec = null;
+			throw new BadRequestException("Invalid sort column");
+		}
+	}
+
+	/**
+	 * Extract the keys into the columns of the previous sort when the
+	 * specification and element class are the same.
+	 */
+	private SortKeyColumn extract(final SortSpec spec, int size) {
+		if (!spec.equals(this.spec) || elements[0].getClass() != beanClass) {
+			this.spec = null;
+			this.columns = new SortKeyColumn.ValueColumn[spec.getKeys().size()];
+			this.column = columns.length == 1 ? null : new SortKeyColumn.CompositeColumn(columns);
+		}
+		List<SortSpec.Key> keys = spec.getKeys();
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = SortKeyColumn.extract(elements, size, keys.get(i), columns[i]);
+		}
+		this.spec = spec;
+		this.beanClass = elements[0].getClass();
+		return columns.length == 1 ? columns[0] : column;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> void apply(final List<T> list, final int[] sorted, int size) {
+		ListIterator<T> it = list.listIterator();
+		for (int i = 0; i < size; i++) {
+			it.next();
+			it.set((T) elements[sorted[i]]);
+		}
+	}
+
+	/**
+	 * Drop the references to the sorted elements, and the arrays when they
+	 * grew too large to keep.
+	 */
+	private void release(int size) {
+		Arrays.fill(elements, 0, Math.min(size, elements.length), null);
+		if (columns != null) {
+			for (SortKeyColumn key : columns) {
+				if (key != null) {
+					key.release(size);
+				}
+			}
+		}
+		if (size > MAX_RETAINED_SIZE) {
+			elements = NO_ELEMENTS;
+			indices = NO_INTS;
+			buffer = NO_INTS;
+			radixKeys = NO_LONGS;
+			radixKeyBuffer = NO_LONGS;
+			radixIndexBuffer = NO_INTS;
+			spec = null;
+			beanClass = null;
+			columns = null;
+			column = null;
+		}
+	}
+
+	/**
+	 * Index array of at least the size.
+	 */
+	int[] indices(int size) {
+		if (indices.length < size) {
+			indices = new int[size];
+		}
+		return indices;
+	}
+
+	/**
+	 * Merge buffer of at least the size, distinct from {@link #indices}.
+	 */
+	int[] buffer(int size) {
+		if (buffer.length < size) {
+			buffer = new int[size];
+		}
+		return buffer;
+	}
+
+	int[] runStarts(int length) {
+		if (runStarts.length < length) {
+			runStarts = new int[length];
+		}
+		return runStarts;
+	}
+
+	long[] radixKeys(int size) {
+		if (radixKeys.length < size) {
+			radixKeys = new long[size];
+		}
+		return radixKeys;
+	}
+
+	long[] radixKeyBuffer(int size) {
+		if (radixKeyBuffer.length < size) {
+			radixKeyBuffer = new long[size];
+		}
+		return radixKeyBuffer;
+	}
+
+	int[] radixIndexBuffer(int size) {
+		if (radixIndexBuffer.length < size) {
+			radixIndexBuffer = new int[size];
+		}
+		return radixIndexBuffer;
+	}
+
+	int[][] radixCounts(int passes, int radix) {
+		if (radixCounts == null) {
+			radixCounts = new int[passes][radix];
+		}
+		return radixCounts;
+	}
+}
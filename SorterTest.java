@@ -0,0 +1,83 @@
+package com.saviynt.pam.util;
+
+import com.saviynt.pam.enums.SortOrder;
+import com.saviynt.pam.exception.BadRequestException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+public class SorterTest {
+
+    @Test
+    @DisplayName("Positive: Reused sorter matches comparator order across sizes and specs")
+    void testReuse() throws Exception{
+        Sorter sorter = Sorter.forCurrentThread();
+        Random random = new Random(7);
+        List<SortSpec> specs = Arrays.asList(SortSpec.of("duration", SortOrder.asc, false),
+                SortSpec.of("duration", SortOrder.desc, true), SortSpec.of("name", SortOrder.asc, true).then("startDate", SortOrder.desc, false),
+                SortSpec.of("cost", SortOrder.desc, false).then("id", SortOrder.asc, false));
+        for (int size : new int[] { 5000, 300, 2000, 20_000, 50 }) {
+            List<Session> sessions = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                sessions.add(new Session(i, random.nextInt(10) == 0 ? null : "s" + random.nextInt(100),
+                        random.nextInt(10) == 0 ? null : new Date(random.nextInt(1000) * 1000L), null,
+                        random.nextInt(10) == 0 ? null : (long) random.nextInt(500),
+                        random.nextInt(10) == 0 ? null : (double) random.nextInt(50), null));
+            }
+            for (SortSpec spec : specs) {
+                //Expected
+                List<Session> expected = new ArrayList<>(sessions);
+                expected.sort(spec.comparator(Session.class));
+                //Sort
+                List<Session> actual = new ArrayList<>(sessions);
+                sorter.sort(actual, spec);
+
+                //assert
+                Assertions.assertIterableEquals(expected, actual);
+            }
+        }
+        Assertions.assertSame(sorter, Sorter.forCurrentThread());
+    }
+
+    @Test
+    @DisplayName("Positive: Multi-key sort above retained size keeps no key columns")
+    void testReleaseLargeMultiKeySort() throws Exception{
+        Sorter sorter = new Sorter();
+        List<Session> sessions = new ArrayList<>();
+        for (int i = 0; i < Sorter.MAX_RETAINED_SIZE + 1; i++) {
+            sessions.add(new Session(i, "s" + (i % 100), null, null, (long) (i % 7), null, null));
+        }
+        SortSpec spec = SortSpec.of("duration", SortOrder.asc, false).then("name", SortOrder.desc, false);
+        //Expected
+        List<Session> expected = new ArrayList<>(sessions);
+        expected.sort(spec.comparator(Session.class));
+        //Sort
+        sorter.sort(sessions, spec);
+
+        //assert
+        Assertions.assertIterableEquals(expected, sessions);
+        for (String name : new String[] { "elements", "columns", "column", "spec", "beanClass" }) {
+            java.lang.reflect.Field field = Sorter.class.getDeclaredField(name);
+            field.setAccessible(true);
+            Object value = field.get(sorter);
+            Assertions.assertTrue(value == null || (value instanceof Object[] && ((Object[]) value).length == 0), name);
+        }
+    }
+
+    @Test
+    @DisplayName("Negative: Invalid sort column leaves sorter usable")
+    void testInvalidColumn() throws Exception{
+        Sorter sorter = new Sorter();
+        List<Session> sessions = new ArrayList<>(Arrays.asList(new Session(2, "b", null, null, null, null, null),
+                new Session(1, "a", null, null, null, null, null)));
+
+        //assert
+        Assertions.assertThrows(BadRequestException.class,()->{
+            sorter.sort(sessions, "timeout", SortOrder.asc, false);
+        });
+        sorter.sort(sessions, "name", SortOrder.asc, false);
+        Assertions.assertEquals(1, sessions.get(0).getId());
+    }
+}
@@ -0,0 +1,202 @@
+package com.saviynt.pam.util;
+
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * The {@link StringCollation} defines how the values of a {@link String} sort
+ * key are ordered: by UTF-16 code unit like {@link String#compareTo} (the
+ * default), ignoring case, or with the {@link Collator} of a locale.
+ * <p>
+ * A key extraction sort computes the collated key of every value once, a
+ * folded string or the bytes of the {@code CollationKey}, and then compares
+ * the keys, so a locale aware sort costs one collation per element instead of
+ * one per comparison. Instances are immutable and thread-safe.
+ */
+public final class StringCollation {
+
+	private static final StringCollation BINARY = new StringCollation(null, -1);
+	private static final StringCollation CASE_INSENSITIVE = new StringCollation(Locale.ROOT, -1);
+
+	private final Locale locale;
+	private final int strength;
+	private final ThreadLocal<Collator> collators;
+
+	private StringCollation(final Locale locale, int strength) {
+		this.locale = locale;
+		this.strength = strength;
+		this.collators = strength < 0 ? null : ThreadLocal.withInitial(() -> {
+			Collator collator = Collator.getInstance(locale);
+			collator.setStrength(strength);
+			collator.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
+			return collator;
+		});
+	}
+
+	/**
+	 * Order strings by UTF-16 code unit, the same as {@link String#compareTo}.
+	 *
+	 * @return collation
+	 */
+	public static StringCollation binary() {
+		return BINARY;
+	}
+
+	/**
+	 * Order strings by UTF-16 code unit ignoring case differences.
+	 *
+	 * @return collation
+	 */
+	public static StringCollation caseInsensitive() {
+		return CASE_INSENSITIVE;
+	}
+
+	/**
+	 * Order strings with the collation rules of the locale, with tertiary
+	 * strength so that accents and case only break ties.
+	 *
+	 * @param locale
+	 * @return collation
+	 */
+	public static StringCollation of(final Locale locale) {
+		return of(locale, Collator.TERTIARY);
+	}
+
+	/**
+	 * Order strings with the collation rules of the locale.
+	 *
+	 * @param locale
+	 * @param strength {@link Collator#PRIMARY}, {@link Collator#SECONDARY},
+	 *                 {@link Collator#TERTIARY} or {@link Collator#IDENTICAL}
+	 * @return collation
+	 *
+	 * @throws IllegalArgumentException if the strength is not a collator strength
+	 */
+	public static StringCollation of(final Locale locale, int strength) {
+		Objects.requireNonNull(locale);
+		if (strength != Collator.PRIMARY && strength != Collator.SECONDARY && strength != Collator.TERTIARY
+				&& strength != Collator.IDENTICAL) {
+			throw new IllegalArgumentException("Invalid collation strength");
+		}
+		return new StringCollation(locale, strength);
+	}
+
+	boolean isBinary() {
+		return this == BINARY;
+	}
+
+	/**
+	 * Get the sort key of an extracted value, values other than strings are
+	 * returned unchanged.
+	 *
+	 * @param value
+	 * @return key compared with {@link CommonComparator#compareKeys}
+	 */
+	Object key(final Object value) {
+		if (!(value instanceof String) || this == BINARY) {
+			return value;
+		}
+		String text = (String) value;
+		if (collators == null) {
+			return fold(text);
+		}
+		return new CollatedKey(collators.get().getCollationKey(text).toByteArray());
+	}
+
+	/**
+	 * Compare two non-null strings without computing their keys, the result
+	 * has the same sign as comparing the keys.
+	 *
+	 * @param s1
+	 * @param s2
+	 * @return value
+	 */
+	int compare(final String s1, final String s2) {
+		if (this == BINARY) {
+			return s1.compareTo(s2);
+		}
+		if (collators == null) {
+			int length = Math.min(s1.length(), s2.length());
+			for (int i = 0; i < length; i++) {
+				char c1 = fold(s1.charAt(i));
+				char c2 = fold(s2.charAt(i));
+				if (c1 != c2) {
+					return c1 - c2;
+				}
+			}
+			return s1.length() - s2.length();
+		}
+		return collators.get().compare(s1, s2);
+	}
+
+	private static String fold(final String text) {
+		char[] chars = text.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = fold(chars[i]);
+		}
+		return new String(chars);
+	}
+
+	private static char fold(char c) {
+		return Character.toLowerCase(Character.toUpperCase(c));
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof StringCollation)) {
+			return false;
+		}
+		StringCollation other = (StringCollation) o;
+		return Objects.equals(locale, other.locale) && strength == other.strength;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(locale, strength);
+	}
+
+	@Override
+	public String toString() {
+		if (this == BINARY) {
+			return "binary";
+		}
+		return collators == null ? "ci" : locale.toLanguageTag() + "/" + strength;
+	}
+
+	/**
+	 * Collation key of a string as the bytes of its {@code CollationKey}, which
+	 * compare unsigned in the same order as the keys themselves.
+	 */
+	static final class CollatedKey implements Comparable<CollatedKey> {
+
+		private final byte[] bytes;
+
+		CollatedKey(final byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		byte[] getBytes() {
+			return bytes;
+		}
+
+		@Override
+		public int compareTo(CollatedKey other) {
+			return Arrays.compareUnsigned(bytes, other.bytes);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return this == o || o instanceof CollatedKey && Arrays.equals(bytes, ((CollatedKey) o).bytes);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(bytes);
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package com.saviynt.pam.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@link TopKBuffer} keeps the first {@code capacity} elements of the
+ * sort order in a bounded max-heap, so a page of a sorted collection costs
+ * O(N log K) instead of a full sort. Ties are broken on the encounter order
+ * of the elements, which gives the same result as a stable full sort.
+ */
+final class TopKBuffer<T> {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final CompiledComparator<T> comparator;
+	private final int capacity;
+	private Entry[] heap;
+	private int size;
+	private long seen;
+	private Object[] scratch;
+
+	/**
+	 * @param comparator
+	 * @param capacity number of elements to keep, offset plus limit of the page
+	 */
+	TopKBuffer(final CompiledComparator<T> comparator, int capacity) {
+		this.comparator = comparator;
+		this.capacity = capacity;
+		this.heap = new Entry[Math.min(capacity, INITIAL_CAPACITY)];
+		this.scratch = new Object[comparator.keyCount()];
+	}
+
+	/**
+	 * Offer the next element in encounter order.
+	 * 
+	 * @param t
+	 */
+	void accept(final T t) {
+		long sequence = seen++;
+		if (capacity == 0) {
+			return;
+		}
+		comparator.extract(t, scratch);
+		if (size < capacity) {
+			if (size == heap.length) {
+				heap = Arrays.copyOf(heap, (int) Math.min(capacity, (long) size << 1));
+			}
+			heap[size] = new Entry(scratch, sequence, t);
+			scratch = new Object[scratch.length];
+			siftUp(size++);
+		} else if (compare(scratch, sequence, heap[0]) < 0) {
+			Entry root = heap[0];
+			Object[] keys = root.keys;
+			root.keys = scratch;
+			root.sequence = sequence;
+			root.element = t;
+			scratch = keys;
+			siftDown(0);
+		}
+	}
+
+	/**
+	 * Merge the elements of a buffer filled from the elements following this
+	 * buffer's elements in encounter order.
+	 * 
+	 * @param other
+	 * @return this
+	 */
+	TopKBuffer<T> merge(final TopKBuffer<T> other) {
+		long offset = seen;
+		for (int i = 0; i < other.size; i++) {
+			Entry entry = other.heap[i];
+			long sequence = entry.sequence + offset;
+			if (size < capacity) {
+				if (size == heap.length) {
+					heap = Arrays.copyOf(heap, (int) Math.min(capacity, (long) size << 1));
+				}
+				entry.sequence = sequence;
+				heap[size] = entry;
+				siftUp(size++);
+			} else if (compare(entry.keys, sequence, heap[0]) < 0) {
+				entry.sequence = sequence;
+				heap[0] = entry;
+				siftDown(0);
+			}
+		}
+		seen += other.seen;
+		return this;
+	}
+
+	/**
+	 * Get the buffered elements in sort order, skipping the first ones.
+	 * 
+	 * @param offset
+	 * @return page
+	 */
+	@SuppressWarnings("unchecked")
+	List<T> toList(int offset) {
+		if (offset >= size) {
+			return Collections.emptyList();
+		}
+		Entry[] sorted = Arrays.copyOf(heap, size);
+		Arrays.sort(sorted, (e1, e2) -> compare(e1.keys, e1.sequence, e2));
+		List<T> page = new ArrayList<>(size - offset);
+		for (int i = offset; i < size; i++) {
+			page.add((T) sorted[i].element);
+		}
+		return page;
+	}
+
+	private int compare(final Object[] keys, long sequence, final Entry entry) {
+		int value = comparator.compareKeys(keys, entry.keys);
+		return value != 0 ? value : Long.compare(sequence, entry.sequence);
+	}
+
+	private void siftUp(int index) {
+		Entry entry = heap[index];
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (compare(entry.keys, entry.sequence, heap[parent]) <= 0) {
+				break;
+			}
+			heap[index] = heap[parent];
+			index = parent;
+		}
+		heap[index] = entry;
+	}
+
+	private void siftDown(int index) {
+		Entry entry = heap[index];
+		int half = size >>> 1;
+		while (index < half) {
+			int child = (index << 1) + 1;
+			int right = child + 1;
+			if (right < size && compare(heap[right].keys, heap[right].sequence, heap[child]) > 0) {
+				child = right;
+			}
+			if (compare(entry.keys, entry.sequence, heap[child]) >= 0) {
+				break;
+			}
+			heap[index] = heap[child];
+			index = child;
+		}
+		heap[index] = entry;
+	}
+
+	/**
+	 * Buffered element with its extracted keys and encounter sequence.
+	 */
+	private static final class Entry {
+
+		private Object[] keys;
+		private long sequence;
+		private Object element;
+
+		Entry(final Object[] keys, long sequence, final Object element) {
+			this.keys = keys;
+			this.sequence = sequence;
+			this.element = element;
+		}
+	}
+}
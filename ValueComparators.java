@@ -0,0 +1,160 @@
+package com.saviynt.pam.util;
+
+import java.lang.invoke.MethodType;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@link ValueComparators} registry holds the comparison strategy of
+ * every sortable value type. A type is sortable when a strategy is
+ * registered for it, one of its superclasses or interfaces, or when it is
+ * {@link Comparable}, which covers String, the numeric wrappers, Boolean,
+ * enums, Date, Timestamp, BigDecimal, UUID and the java.time types.
+ * <p>
+ * The strategy is resolved once per value class and cached in a
+ * {@link ClassValue}, so a comparison costs one lookup instead of matching
+ * the class name. Registering a strategy takes effect for all types on their
+ * next lookup.
+ */
+public final class ValueComparators {
+
+	private static final Comparator<Object> NATURAL_ORDER = ValueComparators::compareNatural;
+
+	private static final ConcurrentMap<Class<?>, Comparator<Object>> REGISTERED = new ConcurrentHashMap<>();
+	private static final AtomicInteger VERSION = new AtomicInteger();
+
+	private static final ClassValue<Strategy> STRATEGIES = new ClassValue<>() {
+		@Override
+		protected Strategy computeValue(Class<?> type) {
+			return new Strategy(type);
+		}
+	};
+
+	private ValueComparators() {
+	}
+
+	/**
+	 * Register the comparison strategy of a type and its subtypes, replacing
+	 * the natural order of a {@link Comparable} type. The comparator is called
+	 * with non-null values only.
+	 *
+	 * @param type
+	 * @param comparator
+	 */
+	@SuppressWarnings("unchecked")
+	public static <V> void register(final Class<V> type, final Comparator<? super V> comparator) {
+		REGISTERED.put(wrap(type), (Comparator<Object>) Objects.requireNonNull(comparator));
+		VERSION.incrementAndGet();
+	}
+
+	/**
+	 * Remove the registered strategy of a type.
+	 *
+	 * @param type
+	 */
+	public static void unregister(final Class<?> type) {
+		if (REGISTERED.remove(wrap(type)) != null) {
+			VERSION.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Check whether values of the declared type can be compared.
+	 *
+	 * @param type declared type, primitive types are checked as their wrapper
+	 * @return true when sortable
+	 */
+	public static boolean isSupported(final Class<?> type) {
+		return of(wrap(type)) != null;
+	}
+
+	/**
+	 * Check whether values of the type are compared in their natural order,
+	 * which the typed key columns and encoded keys rely on.
+	 *
+	 * @param type
+	 * @return true when no strategy is registered for the type
+	 */
+	static boolean isNaturalOrder(final Class<?> type) {
+		return of(wrap(type)) == NATURAL_ORDER;
+	}
+
+	/**
+	 * Get the comparison strategy of a value class.
+	 *
+	 * @param type
+	 * @return comparator of non-null values, or null when the type is not sortable
+	 */
+	static Comparator<Object> of(final Class<?> type) {
+		return STRATEGIES.get(type).get();
+	}
+
+	private static Comparator<Object> resolve(final Class<?> type) {
+		if (!REGISTERED.isEmpty()) {
+			Deque<Class<?>> pending = new ArrayDeque<>();
+			pending.add(type);
+			while (!pending.isEmpty()) {
+				Class<?> current = pending.poll();
+				Comparator<Object> comparator = REGISTERED.get(current);
+				if (comparator != null) {
+					return comparator;
+				}
+				if (current.getSuperclass() != null) {
+					pending.add(current.getSuperclass());
+				}
+				for (Class<?> contract : current.getInterfaces()) {
+					pending.add(contract);
+				}
+			}
+		}
+		return Comparable.class.isAssignableFrom(type) ? NATURAL_ORDER : null;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static int compareNatural(final Object v1, final Object v2) {
+		return ((Comparable) v1).compareTo(v2);
+	}
+
+	private static Class<?> wrap(final Class<?> type) {
+		return type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type;
+	}
+
+	/**
+	 * Cached strategy of one class, resolved again after a registration.
+	 */
+	private static final class Strategy {
+
+		private final Class<?> type;
+		private volatile Resolved resolved;
+
+		Strategy(final Class<?> type) {
+			this.type = type;
+		}
+
+		Comparator<Object> get() {
+			Resolved current = resolved;
+			int expected = VERSION.get();
+			if (current == null || current.version != expected) {
+				current = new Resolved(expected, resolve(type));
+				resolved = current;
+			}
+			return current.comparator;
+		}
+	}
+
+	private static final class Resolved {
+
+		private final int version;
+		private final Comparator<Object> comparator;
+
+		Resolved(int version, final Comparator<Object> comparator) {
+			this.version = version;
+			this.comparator = comparator;
+		}
+	}
+}